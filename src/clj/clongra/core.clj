@@ -6,7 +6,8 @@
               [clojure.set                :as cset ]
               [clojure.walk               :as cwalk]
               [clojure.math.combinatorics :as combo]
-              [clojure.math.numeric-tower :as cmath])
+              [clojure.math.numeric-tower :as cmath]
+              [clojure.core.reducers      :as r    ])
 
     (:gen-class))
 
@@ -34,6 +35,9 @@
 (load "core/1e4-primes")
 (load "core/math")
 (load "core/bitsbytes")
+(load "core/hashing")
+(load "core/data")
+(load "core/storage")
 (load "core/search")
 (load "core/resource")
 (load "core/inflector")
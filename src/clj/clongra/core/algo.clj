@@ -307,10 +307,18 @@
 
 (defn- powerset-generator
   [indexed-coll n]
-  (->> indexed-coll
-       (take (ebit-length n))
-       (filter (fn [p] (ebit-test n (pair-first p))))
-       (map pair-second)))
+  (if (instance? Long n)
+    ;; NO PROTOCOL DISPATCH PER BIT FOR THE MOST COMMON CASE
+    (let [n (long n)]
+      (->> indexed-coll
+           (take (jclongra.core.Bits/bitLength n))
+           (filter (fn [p] (bit-test n (long (pair-first p)))))
+           (map pair-second)))
+
+    (->> indexed-coll
+         (take (ebit-length n))
+         (filter (fn [p] (ebit-test n (pair-first p))))
+         (map pair-second))))
 
 
 (defn nth-in-powerset
@@ -19,6 +19,13 @@
   (jclongra.core.Bits/longBits (long n)))
 
 
+(defn long-set-bits
+  "Returns an int array of the indices of the 1s of a long value,
+  ascending. Unlike long-bits doesn't box anything."
+  ^ints [n]
+  (jclongra.core.Bits/setBits (long n)))
+
+
 (defn bits-to-integral
   "Returns the integral value of the collection of bits starting
   with the least significant bit."
@@ -73,6 +80,55 @@
   (ebit-test   [x n] (.testBit x (int n))))
 
 
+;; RANK/SELECT BIT VECTOR (@see jclongra.core.BitVector)
+
+(defn ^jclongra.core.BitVector bit-vector
+  "Returns an immutable bit vector with the constant time rank and the
+  near constant time select. Takes a java.util.BitSet or a collection
+  of the indices of the 1s together with the length."
+  ([^java.util.BitSet bits]
+     (jclongra.core.BitVector/of bits))
+
+  ([indices length]
+     (jclongra.core.BitVector/ofIndices (long-array indices) (long length))))
+
+
+(defn bv-get
+  [^jclongra.core.BitVector bv i]
+  (.get bv (long i)))
+
+
+(defn bv-rank
+  "Returns the number of the 1s before i in the bit vector."
+  ^long [^jclongra.core.BitVector bv i]
+  (.rank bv (long i)))
+
+
+(defn bv-select
+  "Returns the index of the k-th (from 0) 1 in the bit vector, -1 when
+  there are not that many."
+  ^long [^jclongra.core.BitVector bv k]
+  (.select bv (long k)))
+
+
+(defn bv-next-set-bit
+  ^long [^jclongra.core.BitVector bv from]
+  (.nextSetBit bv (long from)))
+
+
+(defn bv-set-bits
+  "Returns a long array of the indices of the 1s in the bit vector."
+  ^longs [^jclongra.core.BitVector bv]
+  (.setBits bv))
+
+
+(defn bv-doseq-set-bits
+  "Calls f with the index of every 1 in the bit vector. A ^long
+  hinted f gets the indices unboxed."
+  [^jclongra.core.BitVector bv f]
+  (.forEachSetBit bv f))
+
+
 ;; clongra.core.Bytes
 
 (defn ^jclongra.core.Bytes bytes-of
@@ -90,6 +146,13 @@
   (.getBytes bytes))
 
 
+(defn ^jclongra.core.Bytes bytes-view
+  "Returns the Bytes of length bytes of the array at offset, sharing
+  the array."
+  [^bytes array offset length]
+  (jclongra.core.Bytes/view array (int offset) (int length)))
+
+
 (defn ^bytes byte-array-of-size
   [size]
   (jclongra.core.Bytes/arrayOfSize (int size)))
@@ -99,7 +162,12 @@
 
 (def ^:private NO-BYTES (byte-array-of-size 0))
 
-(deftype BytesConverters [to-bytes from-bytes])
+;; Every converter comes with a writer (writer sink value) putting the bytes
+;; of the value into a jclongra.core.ByteSink and returning the number of
+;; bytes written, and a reader (reader buf offset len) decoding the value
+;; from len bytes of the java.nio.ByteBuffer at offset (absolute).
+
+(deftype BytesConverters [to-bytes from-bytes writer reader])
 
 (def ^:private bytes-converters (atom {})) ;; tag → BytesConverters
 
@@ -118,13 +186,68 @@
   (fn [bytes] (when-not (no-bytes? bytes) (f bytes))))
 
 
+(defn- writer-wrapper
+  [f]
+  (fn [sink obj] (if obj (f sink obj) 0)))
+
+
+(defn- reader-wrapper
+  [f]
+  (fn [buf ^long offset ^long len] (when-not (zero? len) (f buf offset len))))
+
+
+(defn- copying-writer
+  [to-bytes]
+  (fn [^jclongra.core.ByteSink sink obj]
+    (let [^bytes bytes (to-bytes obj)
+          n            (alength bytes)]
+      (.put sink bytes 0 n)
+      n)))
+
+
+(defn- copying-reader
+  [from-bytes]
+  (fn [^java.nio.ByteBuffer buf ^long offset ^long len]
+    (let [bytes (byte-array len)
+          b     (.duplicate buf)]
+      (.position ^java.nio.Buffer b (int offset))
+      (.get b bytes)
+      (from-bytes bytes))))
+
+
 (defn def-bytes-converters
   [[to-bytes from-bytes] & types]
   (let [to-bytes   (to-bytes-wrapper   to-bytes)
-        from-bytes (from-bytes-wrapper from-bytes)]
+        from-bytes (from-bytes-wrapper from-bytes)
+        writer     (copying-writer     to-bytes)
+        reader     (reader-wrapper (copying-reader from-bytes))]
 
     (doseq [t types]
-      (swap! bytes-converters assoc t (BytesConverters. to-bytes from-bytes)))))
+      (swap! bytes-converters assoc t
+             (BytesConverters. to-bytes from-bytes writer reader)))))
+
+
+(defn def-bytes-sink-converters
+  "Replaces the (copying by default) writer and reader of the converters
+  registered for the types. @see def-bytes-converters"
+  [[writer reader] & types]
+  (let [writer (writer-wrapper writer)
+        reader (reader-wrapper reader)]
+
+    (doseq [t types]
+      (swap! bytes-converters update t
+             (fn [^BytesConverters convs]
+               (tassert not-nil? convs (tstr "Unsupported type " t))
+               (BytesConverters. (.to-bytes convs) (.from-bytes convs)
+                                 writer reader))))))
+
+
+(defn- ^BytesConverters bytes-converters-of
+  [type]
+  (if-let [convs (@bytes-converters type)]
+    convs
+
+    (terror "Unsupported type " type)))
 
 
 (defn to-bytes
@@ -132,10 +255,7 @@
      ((to-bytes type) value))
 
   ([type]
-     (if-let [^BytesConverters convs (@bytes-converters type)]
-       (.to-bytes convs)
-
-       (terror "Unsupported type " type))))
+     (.to-bytes (bytes-converters-of type))))
 
 
 (defn from-bytes
@@ -143,27 +263,136 @@
      ((from-bytes type) bytes))
 
   ([type]
-     (if-let [^BytesConverters convs (@bytes-converters type)]
-       (.from-bytes convs)
+     (.from-bytes (bytes-converters-of type))))
+
+
+(defn bytes-writer
+  "Returns the (writer sink value) of the type. Look it up once and
+  call it for many values, reusing the sink. @see byte-sink"
+  [type]
+  (.writer (bytes-converters-of type)))
+
+
+(defn bytes-reader
+  "Returns the (reader buf offset len) of the type."
+  [type]
+  (.reader (bytes-converters-of type)))
+
+
+;; POOLED BUFFERS (@see jclongra.core.BufferPool)
+
+(defn- ^jclongra.core.BufferPool buffer-pool
+  [direct]
+  (if direct
+    jclongra.core.BufferPool/DIRECT
+    jclongra.core.BufferPool/HEAP))
+
+
+(defn ^java.nio.ByteBuffer acquire-buffer
+  "Returns a cleared buffer from the shared pool with the limit set to
+  size. Give it back with release-buffer! when done."
+  ([size {:keys [direct] :as options}]
+     (validate-legal-keys [direct] options)
+     (.acquire (buffer-pool direct) (int size)))
+
+  ([size]
+     (acquire-buffer size {})))
 
-       (terror "Unsupported type " type))))
+
+(defn release-buffer!
+  "Returns the buffer to the shared pool it came from. The buffer must
+  not be used afterwards."
+  [^java.nio.ByteBuffer buf]
+  (.release (buffer-pool (.isDirect buf)) buf))
+
+
+(defn trim-buffer-pools!
+  "Drops the pooled buffers kept by the current thread or, with :all
+  true, by all threads (on their next use of the pools) and the shared
+  depots."
+  ([{:keys [all] :as options}]
+     (validate-legal-keys [all] options)
+     (doseq [^jclongra.core.BufferPool pool [jclongra.core.BufferPool/HEAP
+                                              jclongra.core.BufferPool/DIRECT]]
+       (if all (.trim pool) (.trimThread pool))))
+
+  ([]
+     (trim-buffer-pools! {})))
+
+
+(defn ^java.nio.ByteBuffer docleaned-buffer
+  "Like acquire-buffer, but the buffer is released when the current
+  doclean context closes."
+  ([size {:keys [direct] :as options}]
+     (validate-legal-keys [direct] options)
+     (let [lease (.lease (buffer-pool direct) (int size))]
+       (.register (doclean-assert) lease)
+       (.buffer lease)))
+
+  ([size]
+     (docleaned-buffer size {})))
+
+
+(defn ^jclongra.core.ByteSink byte-sink
+  "Returns a growable sink for the bytes writers, reusable after
+  byte-sink-clear!. Accepts a java.nio.ByteBuffer to write into instead
+  (fixed, not growing). A :pooled sink takes its buffers from the
+  shared pool and gives them back on byte-sink-close! or when the
+  current doclean context (if any) closes."
+  ([capacity {:keys [direct pooled] :as options}]
+     (validate-legal-keys [direct pooled] options)
+     (if pooled
+       (let [sink (jclongra.core.ByteSink/pooled
+                   (buffer-pool direct) (int capacity))]
+         (when-let [d (dynval *doclean*)]
+           (.register ^jclongra.core.Doclean d sink))
+         sink)
+
+       (jclongra.core.ByteSink/growable (int capacity) (boolean direct))))
+
+  ([capacity-or-buffer]
+     (if (instance? java.nio.ByteBuffer capacity-or-buffer)
+       (jclongra.core.ByteSink/wrap capacity-or-buffer)
+       (byte-sink capacity-or-buffer {})))
+
+  ([]
+     (byte-sink 256)))
+
+
+(defn byte-sink-clear!
+  [^jclongra.core.ByteSink sink]
+  (.clear sink))
+
+
+(defn byte-sink-close!
+  [^jclongra.core.ByteSink sink]
+  (.close sink))
+
+
+(defn ^bytes byte-sink-bytes
+  "Returns a copy of the bytes written into the sink."
+  [^jclongra.core.ByteSink sink]
+  (.toByteArray sink))
 
 
 ;; COMMON TO-/FROM BYTES CONVERTERS
 
+(def ^:private ^java.nio.ByteOrder BIG-ENDIAN java.nio.ByteOrder/BIG_ENDIAN)
+
+
 ;; ARRAY OF byte/Byte
 
 (def-bytes-converters [identity identity] :bytes)
 
 (def-bytes-converters [(fn [^jclongra.core.Bytes bytes] (bytes-value bytes))
                        (fn [^bytes bytes] (bytes-of bytes))]
-  jclongra.core.Bytes)
+  :bytes-range jclongra.core.Bytes)
 
 
 ;; String
 
-(def-bytes-converters [(fn [^String s]    (.getBytes s   ENCODING))
-                       (fn [^bytes bytes] (String. bytes ENCODING))]
+(def-bytes-converters [(fn [s]            (jclongra.core.Utf8/encode ^String s))
+                       (fn [^bytes bytes] (jclongra.core.Utf8/decode bytes))]
 
   :str java.lang.String)
 
@@ -218,6 +447,115 @@
   :double java.lang.Double)
 
 
+;; ARRAYS OF PRIMITIVES (BIG-ENDIAN, LIKE THE SINGLE VALUES ABOVE)
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitsCodec/shortsToBytes a BIG-ENDIAN))
+   (fn [^bytes bytes] (jclongra.core.BitsCodec/bytesToShorts
+                       bytes 0 (alength bytes) BIG-ENDIAN))]
+
+  :shorts)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitsCodec/intsToBytes a BIG-ENDIAN))
+   (fn [^bytes bytes] (jclongra.core.BitsCodec/bytesToInts
+                       bytes 0 (alength bytes) BIG-ENDIAN))]
+
+  :ints)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitsCodec/longsToBytes a BIG-ENDIAN))
+   (fn [^bytes bytes] (jclongra.core.BitsCodec/bytesToLongs
+                       bytes 0 (alength bytes) BIG-ENDIAN))]
+
+  :longs)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitsCodec/floatsToBytes a BIG-ENDIAN))
+   (fn [^bytes bytes] (jclongra.core.BitsCodec/bytesToFloats
+                       bytes 0 (alength bytes) BIG-ENDIAN))]
+
+  :floats)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitsCodec/doublesToBytes a BIG-ENDIAN))
+   (fn [^bytes bytes] (jclongra.core.BitsCodec/bytesToDoubles
+                       bytes 0 (alength bytes) BIG-ENDIAN))]
+
+  :doubles)
+
+
+;; COMPACT INTEGERS (ZIGZAG VARINTS, BIT-PACKING)
+
+(def-bytes-converters
+  [(fn [l]     (jclongra.core.Bits/varLongToBytes
+                (jclongra.core.Bits/zigZag (long l))))
+   (fn [bytes] (jclongra.core.Bits/unZigZag
+                (jclongra.core.Bits/getVarLong ^bytes bytes 0)))]
+
+  :var-long)
+
+
+(def-bytes-converters
+  [(fn [a]     (jclongra.core.Bits/longsArrayToVarBytes a))
+   (fn [bytes] (jclongra.core.Bits/varBytesToLongsArray bytes))]
+
+  :var-longs)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitPacking/packLongs a false))
+   (fn [^bytes bytes] (jclongra.core.BitPacking/unpackLongs
+                       bytes 0 (alength bytes)))]
+
+  :packed-longs)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitPacking/packLongs a true))
+   (fn [^bytes bytes] (jclongra.core.BitPacking/unpackLongs
+                       bytes 0 (alength bytes)))]
+
+  :delta-longs)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitPacking/packInts a false))
+   (fn [^bytes bytes] (jclongra.core.BitPacking/unpackInts
+                       bytes 0 (alength bytes)))]
+
+  :packed-ints)
+
+
+(def-bytes-converters
+  [(fn [a]            (jclongra.core.BitPacking/packInts a true))
+   (fn [^bytes bytes] (jclongra.core.BitPacking/unpackInts
+                       bytes 0 (alength bytes)))]
+
+  :delta-ints)
+
+
+;; ORDER-PRESERVING KEYS (@see jclongra.core.KeyCodec)
+
+(def-bytes-converters
+  [(fn [k]            (jclongra.core.KeyCodec/encode k))
+   (fn [^bytes bytes] (jclongra.core.KeyCodec/decode bytes 0 (alength bytes)))]
+
+  :ordered-key)
+
+
+(def-bytes-converters
+  [(fn [ks]           (jclongra.core.KeyCodec/encodeTuple ks))
+   (fn [^bytes bytes] (jclongra.core.KeyCodec/decodeTuple
+                       bytes 0 (alength bytes)))]
+
+  :ordered-tuple)
+
+
 ;; BIG INTEGERS
 
 (def-bytes-converters
@@ -263,6 +601,32 @@
   :bitset java.util.BitSet)
 
 
+;; COMPRESSED BITMAP
+
+(defn ^jclongra.core.CompressedBitmap compressed-bitmap
+  "Returns a jclongra.core.CompressedBitmap of the ints in coll, or of
+  the bits of a java.util.BitSet. The runs of consecutive ints get
+  compressed."
+  ([coll]
+     (.runOptimize
+      (if (instance? java.util.BitSet coll)
+        (jclongra.core.CompressedBitmap/fromBitSet coll)
+
+        (let [b (jclongra.core.CompressedBitmap.)]
+          (doseq [i coll] (.add b (int i)))
+          b))))
+
+  ([] (jclongra.core.CompressedBitmap.)))
+
+
+(def-bytes-converters
+  [(fn [^jclongra.core.CompressedBitmap b] (.toBytes b))
+   (fn [^bytes bytes] (jclongra.core.CompressedBitmap/fromBytes
+                       bytes 0 (alength bytes)))]
+
+  :compressed-bitmap jclongra.core.CompressedBitmap)
+
+
 ;; DATE/TIME
 
 (def-bytes-converters
@@ -279,6 +643,159 @@
   :timestamp :time java.sql.Timestamp)
 
 
+;; NON-COPYING WRITERS/READERS
+
+(defmacro ^:private def-fixed-sink-converters
+  "Defines the writer/reader of the values of size bytes, with
+  (put buf value) and (get buf index) given as forms over the
+  symbols buf, value and index."
+  [size [value put] [index get] & types]
+  `(def-bytes-sink-converters
+     [(fn [^jclongra.core.ByteSink sink# ~value]
+        (let [~'buf (.ensure sink# ~size)]
+          ~put
+          ~size))
+
+      (fn [~(with-meta 'buf {:tag 'java.nio.ByteBuffer}) ~index len#]
+        (let [~index (int ~index)]
+          ~get))]
+     ~@types))
+
+
+(def-fixed-sink-converters 1
+  [v (.put buf (byte (if v 1 0)))]
+  [i (not (zero? (.get buf i)))]
+  :boolean :bool java.lang.Boolean)
+
+
+(def-fixed-sink-converters 1
+  [v (.put buf (byte v))]
+  [i (.get buf i)]
+  :byte java.lang.Byte)
+
+
+(def-fixed-sink-converters 2
+  [v (.putShort buf (short v))]
+  [i (.getShort buf i)]
+  :short java.lang.Short)
+
+
+(def-fixed-sink-converters 2
+  [v (.putChar buf (char v))]
+  [i (.getChar buf i)]
+  :char java.lang.Character)
+
+
+(def-fixed-sink-converters 4
+  [v (.putInt buf (int v))]
+  [i (.getInt buf i)]
+  :int java.lang.Integer)
+
+
+(def-fixed-sink-converters 8
+  [v (.putLong buf (long v))]
+  [i (.getLong buf i)]
+  :long java.lang.Long)
+
+
+(def-fixed-sink-converters 4
+  [v (.putFloat buf (float v))]
+  [i (.getFloat buf i)]
+  :float java.lang.Float)
+
+
+(def-fixed-sink-converters 8
+  [v (.putDouble buf (double v))]
+  [i (.getDouble buf i)]
+  :double java.lang.Double)
+
+
+(def-fixed-sink-converters 8
+  [v (.putLong buf (.getTime ^java.util.Date v))]
+  [i (java.util.Date. (.getLong buf i))]
+  :date java.util.Date)
+
+
+(def-fixed-sink-converters 8
+  [v (.putLong buf (.getTime ^java.sql.Timestamp v))]
+  [i (java.sql.Timestamp. (.getLong buf i))]
+  :timestamp :time java.sql.Timestamp)
+
+
+(def-bytes-sink-converters
+  [(fn [^jclongra.core.ByteSink sink s]
+     (let [n (jclongra.core.Utf8/encodedLength ^String s)]
+       (jclongra.core.Utf8/encode ^String s n (.ensure sink n))))
+
+   (fn [buf offset len]
+     (jclongra.core.Utf8/decode ^java.nio.ByteBuffer buf (int offset) (int len)))]
+
+  :str java.lang.String)
+
+
+(defmacro ^:private def-array-sink-converters
+  "Defines the writer/reader of the arrays of primitives of size bytes
+  (big-endian), written and read with the BitsCodec bulk methods."
+  [size hint make put get & types]
+  (let [a (with-meta (gensym "a") {:tag hint})]
+    `(def-bytes-sink-converters
+       [(fn [^jclongra.core.ByteSink sink# ~a]
+          (let [len# (alength ~a)
+                n#   (* ~size len#)
+                b#   (.ensure sink# (int n#))
+                p#   (.position b#)]
+            (~put b# p# ~a 0 len# BIG-ENDIAN)
+            (.position ^java.nio.Buffer b# (int (+ p# n#)))
+            n#))
+
+        (fn [buf# offset# len#]
+          (let [a# (~make (quot (long len#) ~size))]
+            (~get buf# (int offset#) a# 0 (alength a#) BIG-ENDIAN)
+            a#))]
+       ~@types)))
+
+
+(def-array-sink-converters 2 shorts  short-array
+  jclongra.core.BitsCodec/putShorts  jclongra.core.BitsCodec/getShorts
+  :shorts)
+
+
+(def-array-sink-converters 4 ints    int-array
+  jclongra.core.BitsCodec/putInts    jclongra.core.BitsCodec/getInts
+  :ints)
+
+
+(def-array-sink-converters 8 longs   long-array
+  jclongra.core.BitsCodec/putLongs   jclongra.core.BitsCodec/getLongs
+  :longs)
+
+
+(def-array-sink-converters 4 floats  float-array
+  jclongra.core.BitsCodec/putFloats  jclongra.core.BitsCodec/getFloats
+  :floats)
+
+
+(def-array-sink-converters 8 doubles double-array
+  jclongra.core.BitsCodec/putDoubles jclongra.core.BitsCodec/getDoubles
+  :doubles)
+
+
+(def-bytes-sink-converters
+  [(fn [sink d]         (jclongra.core.Bits/writeBigDecimal d sink))
+   (fn [buf offset len] (jclongra.core.Bits/readBigDecimal
+                         buf (int offset) (int len)))]
+
+  :big-decimal java.math.BigDecimal)
+
+
+(def-bytes-sink-converters
+  [(fn [sink r]         (jclongra.core.Bits/writeRatio r sink))
+   (fn [buf offset len] (jclongra.core.Bits/readRatio
+                         buf (int offset) (int len)))]
+
+  :ratio clojure.lang.Ratio)
+
+
 ;; PAIRS OF INTS/LONGS
 
 ;; (def-bytes-converters
@@ -293,3 +810,66 @@
 ;;    (fn [bytes] (clongra.repo.RTools/bytesToLongPair bytes))]
 
 ;;   :long-pair)
+
+
+;; MEMO SNAPSHOTS
+
+(defn memo-save!
+  "Writes the cache of the memo to the file. The arguments and the
+  values are converted with the registered to-bytes converters for
+  key-type and value-type. Returns the number of entries written."
+  [^jclongra.core.Memo memo file {:keys [key-type value-type] :as options}]
+  (validate-legal-keys [key-type value-type] options)
+  (with-open [out (java.io.FileOutputStream. (to-file file))]
+    (jclongra.io.MemoSnapshot/write memo
+                                    (to-bytes key-type)
+                                    (to-bytes value-type)
+                                    out)))
+
+
+(defn memo-snapshot-entries
+  "Returns a lazy seq of (pair args value) entries read from the snapshot
+  file through memory-mapped windows. The file is closed when the seq
+  is fully realized or when the enclosing doclean context closes."
+  [file {:keys [key-type value-type] :as options}]
+  (validate-legal-keys [key-type value-type] options)
+  (let [entries (jclongra.io.MemoSnapshot/mapped (to-file file)
+                                                 (from-bytes key-type)
+                                                 (from-bytes value-type))]
+    (when-let [d (dynval *doclean*)]
+      (doclean-register! d #(.close entries)))
+
+    (letfn [(step []
+              (lazy-seq
+               (if (.hasNext entries)
+                 (cons (.next entries) (step))
+
+                 (do (.close entries) nil))))]
+      (step))))
+
+
+(defn memo-load!
+  "Preloads the memo with the entries of the snapshot file written by
+  memo-save!. With :mapped true reads the file through memory-mapped
+  windows, otherwise through a buffered stream. Returns the number of
+  entries loaded."
+  [^jclongra.core.Memo memo file {:keys [key-type value-type mapped]
+                                  :as   options}]
+  (validate-legal-keys [key-type value-type mapped] options)
+  (if mapped
+    (let [entries (jclongra.io.MemoSnapshot/mapped (to-file file)
+                                                   (from-bytes key-type)
+                                                   (from-bytes value-type))]
+      (with-open [^java.io.Closeable c entries]
+        (loop [n 0]
+          (if (.hasNext entries)
+            (let [^jclongra.core.Pair p (.next entries)]
+              (.preload memo (.first p) (.second p))
+              (recur (inc n)))
+            n))))
+
+    (with-open [in (java.io.FileInputStream. (to-file file))]
+      (jclongra.io.MemoSnapshot/read memo
+                                     (from-bytes key-type)
+                                     (from-bytes value-type)
+                                     in))))
@@ -0,0 +1,189 @@
+;; Copyright (c) Konrad Grzanek. All rights reserved.
+;; Created 2026-10-17
+
+(in-ns 'clongra.core)
+
+;; BINARY CLOJURE DATA (@see jclongra.io.BinaryData)
+
+;; The leaves (all but nil, booleans, longs, doubles, strings, byte arrays,
+;; keywords, symbols and the collections) are written with the bytes
+;; converters registered for their classes and tagged with the type keywords
+;; of the converters, e.g. :big-int, :ratio, :date, :bitset. The reading
+;; resolves only these keywords. Like with from-bytes, a leaf written as no
+;; bytes reads as nil. The maps, sets and seqs read back as the plain
+;; persistent ones, without the metadata; a seq is read in full.
+
+(defn- leaf-type-of
+  "Returns the (first by name) type keyword registered with the same
+  converters as the class c, nil when there's none."
+  [c]
+  (when-let [^BytesConverters convs (@bytes-converters c)]
+    (->> @bytes-converters
+         (keep (fn [[t ^BytesConverters cs]]
+                 (when (and (keyword? t)
+                            (identical? (.to-bytes cs) (.to-bytes convs)))
+                   t)))
+         sort
+         first)))
+
+
+(defn- leaf-writer-of
+  [type]
+  (.writer (bytes-converters-of type)))
+
+
+(defn- leaf-reader-of
+  [type]
+  (.reader (bytes-converters-of type)))
+
+
+(defn ^jclongra.io.BinaryData$Writer data-writer
+  "Returns a writer of the binary Clojure data into the output stream.
+  Close it when done (or at least flush)."
+  [^java.io.OutputStream out]
+  (jclongra.io.BinaryData$Writer. out leaf-type-of leaf-writer-of))
+
+
+(defn ^jclongra.io.BinaryData$Reader data-reader
+  [^java.io.InputStream in]
+  (jclongra.io.BinaryData$Reader. in leaf-reader-of))
+
+
+(defn write-data!
+  "Writes the value with the data-writer. The keywords and symbols are
+  written in full only the first time for every writer. Returns the
+  writer."
+  [^jclongra.io.BinaryData$Writer w value]
+  (.write w value)
+  w)
+
+
+(defn read-data
+  "Reads the next value with the data-reader. Returns eof (nil by
+  default) when the stream ends."
+  ([^jclongra.io.BinaryData$Reader r eof]
+     (.read r eof))
+
+  ([r]
+     (read-data r nil)))
+
+
+(defonce ^:private DATA-EOF ::DATA-EOF)
+
+(defn data-seq
+  "Returns a lazy seq of the values read with the data-reader until the
+  stream ends."
+  [r]
+  (lazy-seq
+   (let [value (read-data r DATA-EOF)]
+     (when-not (identical? DATA-EOF value)
+       (cons value (data-seq r))))))
+
+
+(defn data-to-bytes
+  ^bytes [value]
+  (let [out (java.io.ByteArrayOutputStream.)]
+    (with-open [w (data-writer out)]
+      (.write w value))
+    (.toByteArray out)))
+
+
+(defn data-from-bytes
+  [^bytes bytes]
+  (read-data (data-reader (java.io.ByteArrayInputStream. bytes))))
+
+
+(def-bytes-converters [data-to-bytes data-from-bytes] :data)
+
+
+;; COLUMNAR BATCHES (@see jclongra.io.ColumnBatch)
+
+;; A seq of maps with the same keys gets stored column by column, every
+;; column with the encoding for its values: the longs get bit-packed, the
+;; doubles written raw, the strings (and nils) dictionary-encoded. Any other
+;; column (including the ints, shorts, bytes and floats, so they don't come
+;; back widened) is written value by value as :data, just like the keys.
+
+(defn- string-or-nil?
+  [x]
+  (or (nil? x) (string? x)))
+
+
+(defn- add-column!
+  [^jclongra.io.ColumnBatch$Builder b k values]
+  (let [name (data-to-bytes k)]
+    (cond (every? #(instance? Long %) values)
+          (.longs b name (long-array values))
+
+          (every? #(instance? Double %) values)
+          (.doubles b name (double-array values))
+
+          (every? string-or-nil? values)
+          (.strings b name (into-array String values))
+
+          :else
+          (.values b name (into-array BYTES-CLASS
+                                      (map data-to-bytes values))))))
+
+
+(defn columns-to-bytes
+  "Encodes the records (maps with the same keys) column by column."
+  ^bytes [records]
+  (let [records (vec records)
+        ks      (keys (first records))
+        kset    (set ks)
+        b       (jclongra.io.ColumnBatch$Builder. (count records))]
+    (doseq [r records]
+      (when-not (= kset (set (keys r)))
+        (terror ValueError "Record keys" (keys r) "differ from" ks)))
+    (doseq [k ks]
+      (add-column! b k (mapv #(get % k) records)))
+    (.toBytes b)))
+
+
+(defn- ^jclongra.io.ColumnBatch column-batch
+  [^bytes bytes]
+  (jclongra.io.ColumnBatch/read bytes 0 (alength bytes)))
+
+
+(defn- column-values
+  "Returns the i-th column as an array."
+  [^jclongra.io.ColumnBatch batch i]
+  (let [i (int i)]
+    (condp = (.encoding batch i)
+      jclongra.io.ColumnBatch/LONGS   (.longs   batch i)
+      jclongra.io.ColumnBatch/DOUBLES (.doubles batch i)
+      jclongra.io.ColumnBatch/STRINGS (.strings batch i)
+      jclongra.io.ColumnBatch/VALUES  (into-array Object
+                                                  (map data-from-bytes
+                                                       (.values batch i))))))
+
+
+(defn- column-keys
+  [^jclongra.io.ColumnBatch batch]
+  (mapv #(data-from-bytes (.name batch (int %)))
+        (range (.columnsCount batch))))
+
+
+(defn column-from-bytes
+  "Decodes the column of the key k alone, returns it as an array: long[]
+  for the longs, double[] for the doubles, String[] for the strings and
+  Object[] otherwise. Returns nil when there's no such column."
+  [bytes k]
+  (let [batch (column-batch bytes)
+        i     (.indexOf ^java.util.List (column-keys batch) k)]
+    (when-not (neg? i)
+      (column-values batch i))))
+
+
+(defn columns-from-bytes
+  "Decodes all the columns, returns the vector of the records."
+  [bytes]
+  (let [batch (column-batch bytes)
+        ks    (column-keys batch)
+        cols  (mapv #(vec (column-values batch %)) (range (count ks)))]
+    (mapv (fn [i] (zipmap ks (map #(nth % i) cols)))
+          (range (.rows batch)))))
+
+
+(def-bytes-converters [columns-to-bytes columns-from-bytes] :columns)
@@ -14,10 +14,23 @@
 
 (defn len
   [coll]
-  (if (eseq? coll)
-    (.len ^jclongra.core.eseq.IEnhancedSeq coll)
+  (cond (instance? jclongra.core.eseq.IPrimitiveESeq coll)
+        (.lenLong ^jclongra.core.eseq.IPrimitiveESeq coll)
 
-    (count coll)))
+        (eseq? coll)
+        (.len ^jclongra.core.eseq.IEnhancedSeq coll)
+
+        :else
+        (count coll)))
+
+
+(defn len-long
+  "Works like len, but for the colls of finite long lengths only."
+  ^long [coll]
+  (if (instance? jclongra.core.eseq.IPrimitiveESeq coll)
+    (.lenLong ^jclongra.core.eseq.IPrimitiveESeq coll)
+
+    (long (len coll))))
 
 
 (defn with-len
@@ -45,10 +58,37 @@
 
 (defn enth
   [coll n]
-  (if (eseq? coll)
-    (.enth ^jclongra.core.eseq.IEnhancedSeq coll n)
+  (cond (instance? jclongra.core.eseq.ILongESeq coll)
+        (.enthLong ^jclongra.core.eseq.ILongESeq coll (long n))
+
+        (instance? jclongra.core.eseq.IDoubleESeq coll)
+        (.enthDouble ^jclongra.core.eseq.IDoubleESeq coll (long n))
+
+        (eseq? coll)
+        (.enth ^jclongra.core.eseq.IEnhancedSeq coll n)
+
+        :else
+        (nth coll n)))
 
-    (nth coll n)))
+
+(defn enth-long
+  "Works like enth, but takes and returns a long. Doesn't box anything for
+  the long eseqs."
+  ^long [coll ^long n]
+  (if (instance? jclongra.core.eseq.ILongESeq coll)
+    (.enthLong ^jclongra.core.eseq.ILongESeq coll n)
+
+    (long (enth coll n))))
+
+
+(defn enth-double
+  "Works like enth, but takes a long and returns a double. Doesn't box
+  anything for the double eseqs."
+  ^double [coll ^long n]
+  (if (instance? jclongra.core.eseq.IDoubleESeq coll)
+    (.enthDouble ^jclongra.core.eseq.IDoubleESeq coll n)
+
+    (double (enth coll n))))
 
 
 (defn with-enth
@@ -56,6 +96,51 @@
   (jclongra.core.eseq.ESeq/withEnth nth coll))
 
 
+;; PRIMITIVE ESEQS
+
+(defn long-eseq
+  "Returns a long eseq of the long[] (not copied) or of len values of
+  (f i), where f is preferably a ^long fn of a ^long index."
+  ([^longs values]
+     (jclongra.core.eseq.LongESeq/of values))
+
+  ([f len]
+     (jclongra.core.eseq.LongESeq/of ^clojure.lang.IFn f (long len))))
+
+
+(defn double-eseq
+  "Returns a double eseq of the double[] (not copied) or of len values of
+  (f i), where f is preferably a ^double fn of a ^long index."
+  ([^doubles values]
+     (jclongra.core.eseq.DoubleESeq/of values))
+
+  ([f len]
+     (jclongra.core.eseq.DoubleESeq/of ^clojure.lang.IFn f (long len))))
+
+
+;; PARALLEL FOLD (@see jclongra.core.eseq.ESeqFold)
+
+;; The splittable eseqs (finite, with the enth given explicitly, like
+;; permutations-eseq, cartesian-product-eseq or powerset-eseq) get folded
+;; over the enth ranges in parallel, the others get reduced sequentially.
+;; The (.spliterator coll) of a splittable eseq partitions the enth ranges
+;; too, so (.parallelStream coll) spreads over the cores as well.
+
+(defn splittable-eseq?
+  [coll]
+  (and (instance? jclongra.core.eseq.ESeq coll)
+       (.isSplittable ^jclongra.core.eseq.ESeq coll)))
+
+
+(extend-protocol r/CollFold
+  jclongra.core.eseq.ESeq
+  (coll-fold [coll n combinef reducef]
+    (if (.isSplittable coll)
+      (jclongra.core.eseq.ESeqFold/fold coll (long n) combinef reducef)
+
+      (reduce reducef (combinef) coll))))
+
+
 ;; INFINITY/FINITY
 
 (defn infinite?
@@ -0,0 +1,134 @@
+;; Copyright (c) Konrad Grzanek. All rights reserved.
+;; Created 2026-10-17
+
+(in-ns 'clongra.core)
+
+;; FAST NON-CRYPTOGRAPHIC HASHES (@see jclongra.core.Hashing)
+
+(def ^:private BYTES-CLASS (class (byte-array 0)))
+
+(def ^:private LONGS-CLASS (class (long-array 0)))
+
+(defn hash64
+  "Returns the 64-bit xxHash64 of a byte array, Bytes or the remaining
+  bytes of a java.nio.ByteBuffer."
+  (^long [x]
+     (hash64 x 0))
+
+  (^long [x seed]
+     (cond (instance? BYTES-CLASS x)
+           (let [^bytes b x]
+             (jclongra.core.Hashing/xxHash64 b 0 (alength b) (long seed)))
+
+           (instance? jclongra.core.Bytes x)
+           (let [^jclongra.core.Bytes b x]
+             (jclongra.core.Hashing/xxHash64
+              (.array b) (.offset b) (.length b) (long seed)))
+
+           (instance? java.nio.ByteBuffer x)
+           (let [^java.nio.ByteBuffer b x]
+             (jclongra.core.Hashing/xxHash64
+              b (.position b) (.remaining b) (long seed)))
+
+           :else (terror "Can't hash " x))))
+
+
+(defn ^longs hash128
+  "Returns the 128-bit MurmurHash3 of a byte array, Bytes or the
+  remaining bytes of a java.nio.ByteBuffer as a long array [h1 h2]."
+  ([x]
+     (hash128 x 0))
+
+  ([x seed]
+     (cond (instance? BYTES-CLASS x)
+           (let [^bytes b x]
+             (jclongra.core.Hashing/murmur3x128 b 0 (alength b) (int seed)))
+
+           (instance? jclongra.core.Bytes x)
+           (let [^jclongra.core.Bytes b x]
+             (jclongra.core.Hashing/murmur3x128
+              (.array b) (.offset b) (.length b) (int seed)))
+
+           (instance? java.nio.ByteBuffer x)
+           (let [^java.nio.ByteBuffer b x]
+             (jclongra.core.Hashing/murmur3x128
+              b (.position b) (.remaining b) (int seed)))
+
+           :else (terror "Can't hash " x))))
+
+
+(defn value-hasher
+  "Returns a (fn [value]) giving the hash64 of the bytes of the value
+  as written by the bytes-writer of the type. Writes into a sink per
+  thread, so no byte arrays get allocated per value."
+  [type]
+  (let [writer (bytes-writer type)
+        sinks  (ThreadLocal.)]
+    (fn ^long [value]
+      (let [^jclongra.core.ByteSink sink
+            (or (.get sinks)
+                (let [sink (byte-sink)] (.set sinks sink) sink))]
+
+        (.clear sink)
+        (let [n (long (writer sink value))]
+          (jclongra.core.Hashing/xxHash64 (.buffer sink) 0 (int n) 0))))))
+
+
+;; BLOOM FILTERS (@see jclongra.core.BloomFilter)
+
+(defn ^jclongra.core.BloomFilter bloom-filter
+  "Returns a Bloom filter sized for the expected number of keys and the
+  false positive probability fpp. A :blocked filter keeps the probes of
+  every key in one cache line; faster, with a little higher fpp."
+  ([expected fpp {:keys [blocked] :as options}]
+     (validate-legal-keys [blocked] options)
+     (if blocked
+       (jclongra.core.BloomFilter/createBlocked (long expected) (double fpp))
+       (jclongra.core.BloomFilter/create        (long expected) (double fpp))))
+
+  ([expected fpp]
+     (bloom-filter expected fpp {})))
+
+
+(defn- bloom-key-hash
+  ^long [key]
+  (if (instance? Long key) key (hash64 key)))
+
+
+(defn bloom-add!
+  "Adds a key (a byte array, Bytes, java.nio.ByteBuffer or a Long
+  hash64, e.g. from a value-hasher) to the filter. Returns the filter."
+  [^jclongra.core.BloomFilter bf key]
+  (.addHash bf (bloom-key-hash key))
+  bf)
+
+
+(defn bloom-contains?
+  "Returns false when the key is certainly not in the filter, true when
+  it is probably in."
+  [^jclongra.core.BloomFilter bf key]
+  (.mightContainHash bf (bloom-key-hash key)))
+
+
+(defn bloom-add-all!
+  [^jclongra.core.BloomFilter bf keys]
+  (if (instance? LONGS-CLASS keys)
+    (.addAllHashes bf ^longs keys)
+    (.addAllHashes bf (long-array (map bloom-key-hash keys))))
+  bf)
+
+
+(defn ^booleans bloom-contains-all
+  "Returns a boolean array of bloom-contains? for all the keys."
+  [^jclongra.core.BloomFilter bf keys]
+  (if (instance? LONGS-CLASS keys)
+    (.mightContainAllHashes bf ^longs keys)
+    (.mightContainAllHashes bf (long-array (map bloom-key-hash keys)))))
+
+
+(def-bytes-converters
+  [(fn [^jclongra.core.BloomFilter bf] (.toBytes bf))
+   (fn [^bytes bytes]
+     (jclongra.core.BloomFilter/fromBytes bytes 0 (alength bytes)))]
+
+  :bloom-filter jclongra.core.BloomFilter)
@@ -248,7 +248,7 @@
 
       (conj (prime-factors (/ x first-primediv)) first-primediv))))
 
-(redef-as-dynamic-memo prime-factors)
+(redef-as-scoped-memo prime-factors)
 
 
 (defn number-of-divisors
@@ -329,7 +329,7 @@
       (recur (dec i) (long (* result i))))))
 
 ;; cache for n in 0 .. 20, others => overflow
-(redef-as-memo factorial)
+(redef-as-memo factorial {:key-type :long})
 
 
 (defn factorial'
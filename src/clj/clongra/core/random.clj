@@ -85,19 +85,40 @@
 
 ;; ALGORITHMS
 
+(defn- sampled-len
+  [coll]
+  (if (instance? jclongra.core.eseq.IPrimitiveESeq coll)
+    (len-long coll)
+    (len coll)))
+
+
+(defn- sampled-enth
+  "Returns (fn [i] ...) for the elements of coll, primitive for the long and
+  double eseqs."
+  [coll]
+  (cond (instance? jclongra.core.eseq.ILongESeq coll)
+        (fn [i] (enth-long coll (long i)))
+
+        (instance? jclongra.core.eseq.IDoubleESeq coll)
+        (fn [i] (enth-double coll (long i)))
+
+        :else
+        (fn [i] (enth coll i))))
+
+
 (defn take-rand!
   "Returns a collection of n elements taken randomly (possibly
   multiple times) out of the coll. The coll must be finite.
 
   Returned collection is enhanced (with len value)."
   ([random n coll]
-     (let [size (len coll)]
+     (let [size (sampled-len coll)]
        (when (+∞? size)
          (terror IllegalArgumentException "Infinite coll not allowed."))
 
        (->> (rand-integers! random size)
             (take n)
-            (map #(enth coll %))
+            (map (sampled-enth coll))
             (with-len-value n))))
 
   ([n coll]
@@ -110,7 +131,7 @@
 
   Returned collection is enhanced (with len value)."
   ([random n coll]
-     (let [size (len coll)]
+     (let [size (sampled-len coll)]
        (when (+∞? size)
          (terror IllegalArgumentException "Infinite coll not allowed."))
 
@@ -119,7 +140,7 @@
          (->> (rand-integers! random size)
               distinct
               (take n)
-              (map #(enth coll %))
+              (map (sampled-enth coll))
               (with-len-value n)))))
 
   ([n coll]
@@ -129,6 +129,25 @@
 
 ;; BINARY SEARCH
 
+(defmacro ^:private binary-search-loop
+  "Expands into the binary search over the indices [0, n). The element-expr
+  gets the element at the index bound to the symbol i."
+  [n i element-expr key comptor not-found]
+  `(loop [l# 0
+          u# (unchecked-dec (long ~n))]
+
+     (if (< u# l#)
+       ~not-found
+
+       (let [~i (jclongra.core.Numbers/uncheckedLongMid l# u#)
+             element# ~element-expr
+             result# (long (~comptor ~key element#))]
+
+         (cond (< result# 0) (recur l# (unchecked-dec ~i))
+               (> result# 0) (recur (unchecked-inc ~i) u#)
+               :else element#)))))
+
+
 (defn binary-search
   "A binary search, ∞ aware. Assumes coll is a finite sorted
   collection. Returns the element if one found, not-found
@@ -136,25 +155,23 @@
 
   Works SOLELY on long indices, co expects the number of elements of
   coll within long range. WRT the RAM capacities this is going to be
-  asserted now and in foresable future."
+  asserted now and in foresable future. The long and double eseqs are
+  searched with len-long and enth-long/enth-double."
   ([coll key comptor not-found]
-     (let [n (len coll)]
-       (when (+∞? n)
-         (terror IllegalArgumentException "Infinite colls not allowed."))
-
-       (loop [l 0
-              u (unchecked-dec (long n))]
+     (cond (instance? jclongra.core.eseq.ILongESeq coll)
+           (binary-search-loop (len-long coll) i (enth-long coll i)
+                               key comptor not-found)
 
-         (if (< u l)
-           not-found
+           (instance? jclongra.core.eseq.IDoubleESeq coll)
+           (binary-search-loop (len-long coll) i (enth-double coll i)
+                               key comptor not-found)
 
-           (let [i (jclongra.core.Numbers/uncheckedLongMid l u)
-                 element (enth coll i)
-                 result (long (comptor key element))]
+           :else
+           (let [n (len coll)]
+             (when (+∞? n)
+               (terror IllegalArgumentException "Infinite colls not allowed."))
 
-             (cond (< result 0) (recur l (unchecked-dec i))
-                   (> result 0) (recur (unchecked-inc i) u)
-                   :else element))))))
+             (binary-search-loop n i (enth coll i) key comptor not-found))))
 
   ([coll key comptor]
      (binary-search coll key comptor nil))
@@ -172,23 +189,27 @@
   "Works like binary-search, but accepts colls that have len(gth)s in
   ranges wider than Long."
   ([coll key comptor not-found]
-     (let [n (len coll)]
-       (when (+∞? n)
-         (terror IllegalArgumentException "Infinite colls not allowed."))
+     (if (instance? jclongra.core.eseq.IPrimitiveESeq coll)
+       ;; THE PRIMITIVE ESEQS HAVE long LENGTHS
+       (binary-search coll key comptor not-found)
+
+       (let [n (len coll)]
+         (when (+∞? n)
+           (terror IllegalArgumentException "Infinite colls not allowed."))
 
-       (loop [l (Long/valueOf 0)
-              u (dec n)]
+         (loop [l (Long/valueOf 0)
+                u (dec n)]
 
-         (if (< u l)
-           not-found
+           (if (< u l)
+             not-found
 
-           (let [i (binary-search-mid' l u)
-                 element (enth coll i)
-                 result (long (comptor key element))]
+             (let [i (binary-search-mid' l u)
+                   element (enth coll i)
+                   result (long (comptor key element))]
 
-             (cond (< result 0) (recur l (dec i))
-                   (> result 0) (recur (inc i) u)
-                   :else element))))))
+               (cond (< result 0) (recur l (dec i))
+                     (> result 0) (recur (inc i) u)
+                     :else element)))))))
 
   ([coll key comptor]
      (binary-search' coll key comptor nil))
@@ -0,0 +1,125 @@
+;; Copyright (c) Konrad Grzanek. All rights reserved.
+;; Created 2026-10-17
+
+(in-ns 'clongra.core)
+
+;; RECORD LOG (@see jclongra.io.RecordLog)
+
+(defn ^jclongra.io.RecordLog record-log
+  "Opens (or creates) the append-only record log in the directory. The
+  segments roll over at :segment-size bytes (256 MB by default), the
+  appends are fsync-ed every :sync-every records (when given) and on
+  record-log-sync!. Close it when done."
+  ([dir {:keys [segment-size sync-every] :as options}]
+     (validate-legal-keys [segment-size sync-every] options)
+     (jclongra.io.RecordLog/open (to-file dir)
+                                 (long (or segment-size (* 256 1024 1024)))
+                                 (int  (or sync-every 0))))
+
+  ([dir]
+     (record-log dir {})))
+
+
+(defn record-log-append!
+  "Appends the value written with the bytes-writer of the type. Returns
+  the offset of the record."
+  ^long [^jclongra.io.RecordLog log type value]
+  (.append log ^clojure.lang.IFn (bytes-writer type) value))
+
+
+(defn record-log-read
+  "Returns the value of the type read from the record at the offset."
+  [^jclongra.io.RecordLog log type offset]
+  (let [buf (.read log (long offset))]
+    ((bytes-reader type) buf 0 (.remaining buf))))
+
+
+(defn record-log-sync!
+  [^jclongra.io.RecordLog log]
+  (.sync log))
+
+
+(defn record-log-roll!
+  [^jclongra.io.RecordLog log]
+  (.roll log))
+
+
+(defn record-log-scan
+  "Returns a lazy seq of (pair offset value) for the records of the log
+  from the offset :from (0 by default) on. The values are read with
+  the bytes-reader of the type straight from the mapped segments."
+  ([^jclongra.io.RecordLog log type {:keys [from] :as options}]
+     (validate-legal-keys [from] options)
+     (let [scan   (.scan log (long (or from 0)))
+           reader (bytes-reader type)]
+       (letfn [(step []
+                 (lazy-seq
+                  (when (.hasNext scan)
+                    (let [^java.nio.ByteBuffer buf (.next scan)]
+                      (cons (pair (.offset scan)
+                                  (reader buf 0 (.remaining buf)))
+                            (step))))))]
+         (step))))
+
+  ([log type]
+     (record-log-scan log type {})))
+
+
+;; SORTED INDEX (@see jclongra.io.SortedIndex)
+
+;; The keys are ordered as their bytes (unsigned, lexicographically), so
+;; for the ordered keys use the :ordered-key or :ordered-tuple key-type.
+
+(defn sorted-index-build!
+  "Writes the sorted index file from the entries ([key value] or
+  pairs) in the ascending order of the key bytes. Returns the number
+  of entries."
+  [file entries {:keys [key-type value-type] :as options}]
+  (validate-legal-keys [key-type value-type] options)
+  (let [key-bytes (to-bytes key-type)
+        writer    (bytes-writer value-type)]
+    (with-open [b (jclongra.io.SortedIndex/builder (to-file file))]
+      (doseq [e entries]
+        (let [[k v] (if (pair? e) [(pair-first e) (pair-second e)] e)]
+          (.add b ^bytes (key-bytes k) ^clojure.lang.IFn writer v)))
+      (.entries b))))
+
+
+(defn ^jclongra.io.SortedIndex sorted-index
+  "Opens the memory mapped sorted index file."
+  [file]
+  (jclongra.io.SortedIndex/open (to-file file)))
+
+
+(defn sorted-index-get
+  "Returns the value of the key, nil when absent."
+  [^jclongra.io.SortedIndex idx key {:keys [key-type value-type] :as options}]
+  (validate-legal-keys [key-type value-type] options)
+  (when-let [buf (.get idx ^bytes (to-bytes key-type key))]
+    ((bytes-reader value-type) buf 0 (.remaining buf))))
+
+
+(defn sorted-index-scan
+  "Returns a lazy seq of (pair key value) for the keys in [from, to),
+  both optional, in the ascending order."
+  [^jclongra.io.SortedIndex idx {:keys [key-type value-type from to]
+                                 :as   options}]
+  (validate-legal-keys [key-type value-type from to] options)
+  (let [key-bytes  (to-bytes key-type)
+        from-key   (from-bytes key-type)
+        reader     (bytes-reader value-type)
+        ^java.util.Iterator entries
+        (.scan idx
+               (when-not (nil? from) (key-bytes from))
+               (when-not (nil? to)   (key-bytes to)))]
+
+    (letfn [(step []
+              (lazy-seq
+               (when (.hasNext entries)
+                 (let [^jclongra.core.Pair e   (.next entries)
+                       ^java.nio.ByteBuffer  v (.second e)]
+                   (cons (pair (from-key (.getBytes ^jclongra.core.Bytes
+                                                    (.first e)))
+                               (reader v 0 (.remaining v)))
+                         (step))))))]
+      (step))))
@@ -627,17 +627,162 @@
 (def NO-MEMO-PRED (return true))
 
 
+(def ^:private MEMO-EVICTION-POLICIES
+  {:lru      jclongra.core.BoundedMemoCache$Policy/LRU
+   :slru     jclongra.core.BoundedMemoCache$Policy/SLRU
+   :tiny-lfu jclongra.core.BoundedMemoCache$Policy/TINY_LFU})
+
+
+(defn- msecs-to-nanos
+  [msecs]
+  (if msecs (* 1000000 (long msecs)) 0))
+
+
+(defn- long-memo-cache
+  [{:keys [concurrent max-entries max-weight
+           expire-after-write expire-after-access dense-limit]}]
+  (assert (not (or concurrent max-entries max-weight
+                   expire-after-write expire-after-access))
+          "A :long keyed memo can't be :concurrent nor bounded.")
+  (if dense-limit
+    (jclongra.core.LongMemoCache. (int dense-limit))
+    (jclongra.core.LongMemoCache.)))
+
+
+(def ^:private MEMO-EXECUTOR
+  (delay (jclongra.core.AsyncMemoCache/boundedExecutor
+          (.. Runtime getRuntime availableProcessors) 1024)))
+
+
+(defn- async-memo-cache
+  [{:keys [concurrent max-entries max-weight expire-after-write
+           expire-after-access key-type refresh-after executor]}]
+  (assert (not (or concurrent max-entries max-weight key-type
+                   expire-after-write expire-after-access))
+          "An :async memo can't be :concurrent, bounded nor :long keyed.")
+  (jclongra.core.AsyncMemoCache. (or executor @MEMO-EXECUTOR)
+                                 (msecs-to-nanos refresh-after)))
+
+
+(defn- memo-cache
+  [{:keys [concurrent max-entries max-weight weigher
+           expire-after-write expire-after-access eviction key-type async
+           refresh-after executor]
+    :or   {eviction :tiny-lfu}
+    :as   options}]
+  (assert (or async (not (or refresh-after executor)))
+          "A memo with :refresh-after or :executor must be :async.")
+  (cond
+    async
+    (async-memo-cache options)
+
+    (= key-type :long)
+    (long-memo-cache options)
+
+    key-type
+    (terror "Illegal key-type" key-type)
+
+    (not (or max-entries max-weight expire-after-write expire-after-access))
+    (if concurrent
+      (jclongra.core.ConcurrentMemoCache.)
+      (jclongra.core.SynchronizedMemoCache.))
+
+    :else
+    (do (assert (not concurrent)
+                "A bounded memo can't be :concurrent.")
+        (jclongra.core.BoundedMemoCache.
+         (tassert not-nil? (MEMO-EVICTION-POLICIES eviction)
+                  (tstr "Illegal eviction policy " eviction))
+         (long (or max-entries 0))
+         (long (or max-weight  0))
+         weigher
+         (msecs-to-nanos expire-after-write)
+         (msecs-to-nanos expire-after-access)))))
+
+
+(defn- cost-admission
+  [{:keys [min-cost-nanos min-cost-nanos-per-weight weigher]}]
+  (when (or min-cost-nanos min-cost-nanos-per-weight)
+    (jclongra.core.CostAdmission. (long   (or min-cost-nanos            0))
+                                  (double (or min-cost-nanos-per-weight 0))
+                                  weigher)))
+
+
+(defn- fixed-arity
+  "Returns the arity of a function with the given arglists if the
+  function has exactly one, non-variadic arity, nil otherwise."
+  [arglists]
+  (when (singleton? arglists)
+    (let [args (first arglists)]
+      (when-not (some #{'&} args)
+        (count args)))))
+
+
 (defn memo
   "A resettable version of clojure.core/memoize. @see memo-reset!
   Takes an optional unary predicate that says whether or not the
   result is to be cached. Allows tracing the memo cache/non-cache
-  hits."
-  ([f {:keys [pred trace-hits]
+  hits. A :concurrent memo does not lock on lookups and computes
+  the value for a missed key once, while the other callers wait
+  for that key only.
+
+  The cache may be bounded with :max-entries, :max-weight (requires
+  a (weigher args value) function, args being the seq of the
+  arguments), :expire-after-write and
+  :expire-after-access (msecs). The bounded caches evict
+  using (:eviction options) - one of :lru, :slru, :tiny-lfu
+  (default). The evictions are traced together with the hits.
+
+  The memos of unary and binary functions key their caches directly
+  on the arguments and don't allocate an args seq per call. The arity
+  is taken from (:arity options) or from the :arglists of f (when f is
+  a Var); other functions get the args-seq keyed memo.
+
+  A unary function over integers may be memoized with :key-type :long.
+  Such a memo keeps the results in a primitive long-keyed table, with
+  an array for the keys in [0, :dense-limit) (1024 by default).
+
+  Values cheap to compute may be kept out of the cache: with
+  :min-cost-nanos only the values computed in at least that time are
+  cached, with :min-cost-nanos-per-weight the computation must take at
+  least that time per unit of (weigher args value), e.g. per byte. When
+  tracing the hits, the memo also traces the average miss time. @see
+  memo-stats
+
+  An :async memo caches futures, so that concurrent callers share the
+  computation in progress. @see memo-get-async. With :refresh-after
+  (msecs) an older entry gets recomputed in the background on a hit
+  while the stale value is still returned. The background work runs on
+  (:executor options), by default on a shared pool with a bounded queue."
+  ([f {:keys [pred trace-hits concurrent max-entries max-weight weigher
+              expire-after-write expire-after-access eviction arity
+              key-type dense-limit min-cost-nanos min-cost-nanos-per-weight
+              async refresh-after executor]
        :or   {pred       NO-MEMO-PRED
-              trace-hits false}
+              trace-hits false
+              concurrent false}
        :as   options}]
-     (validate-legal-keys [pred trace-hits] options)
-     (jclongra.core.Memo. f pred (boolean trace-hits)))
+     (validate-legal-keys [pred trace-hits concurrent max-entries max-weight
+                           weigher expire-after-write expire-after-access
+                           eviction arity key-type dense-limit min-cost-nanos
+                           min-cost-nanos-per-weight async refresh-after
+                           executor]
+                          options)
+     (let [trace-hits (boolean trace-hits)
+           cache      (memo-cache options)
+           admission  (cost-admission options)
+           arity      (if (contains? options :arity)
+                        arity
+                        (fixed-arity (:arglists (meta f))))]
+       (assert (or (not= key-type :long) (contains? #{1 nil} arity))
+               "A :long keyed memo requires a unary function.")
+       (if (= key-type :long)
+         (jclongra.core.LongMemo. f pred trace-hits cache admission)
+
+         (condp = arity
+           1 (jclongra.core.Memo1. f pred trace-hits cache admission)
+           2 (jclongra.core.Memo2. f pred trace-hits cache admission)
+           (jclongra.core.Memo.  f pred trace-hits cache admission)))))
 
   ([f]
      (memo f {})))
@@ -657,17 +802,55 @@
   (.reset memo key))
 
 
+(defn memo-clean-up!
+  "Drops the expired entries of the memo cache (bounded with
+  :expire-after-write/:expire-after-access), tracing them as evictions.
+  Returns the number of entries dropped."
+  [^jclongra.core.Memo memo]
+  (.cleanUp memo))
+
+
 (defn memo-size
   "Returns the number items (keys) stored in the cache"
   [^jclongra.core.Memo memo]
   (.cacheSize memo))
 
 
+(defn ^java.util.concurrent.CompletableFuture memo-get-async
+  "Returns a CompletableFuture of the memo value for the args. For an
+  :async memo a miss is computed in the background."
+  [^jclongra.core.Memo memo & args]
+  (.getAsync memo args))
+
+
+(defn memo-stats
+  "Returns the hits statistics of a memo created with :trace-hits."
+  [^jclongra.core.Memo memo]
+  {:size           (.cacheSize    memo)
+   :cache-hits     (.cacheHits    memo)
+   :f-hits         (.fHits        memo)
+   :evictions      (.evictions    memo)
+   :avg-miss-nanos (.avgMissNanos memo)})
+
+
+(defn- with-memo-arity
+  [var-meta options]
+  (if (contains? options :arity)
+    options
+    (assoc options :arity (fixed-arity (:arglists var-meta)))))
+
+
 (defn redef-as-memo
   "Redefines the named function to be a memoized one."
-  {:arglists '([f {:keys [pred trace-hits]
+  {:arglists '([f {:keys [pred trace-hits concurrent max-entries max-weight
+                          weigher expire-after-write expire-after-access
+                          eviction arity key-type dense-limit min-cost-nanos
+                          min-cost-nanos-per-weight async refresh-after
+                          executor]
                    :or   {pred       NO-MEMO-PRED
-                          trace-hits false}
+                          trace-hits false
+                          concurrent false
+                          eviction   :tiny-lfu}
                    :as   options}]
 
                  [f])}
@@ -679,7 +862,7 @@
            name (with-meta (:name m) m)]
 
        (intern *ns* name (memo (.getRawRoot ^clojure.lang.Var v)
-                               options))))
+                               (with-memo-arity m options)))))
 
   ([f]
      (redef-as-memo f {})))
@@ -690,9 +873,15 @@
 (defn redef-as-dynamic-memo
   "Redefines the named function to be a memoized one.  The function
   MUST be defined as the dynamic one."
-  {:arglists '([f {:keys [pred trace-hits]
+  {:arglists '([f {:keys [pred trace-hits concurrent max-entries max-weight
+                          weigher expire-after-write expire-after-access
+                          eviction arity key-type dense-limit min-cost-nanos
+                          min-cost-nanos-per-weight async refresh-after
+                          executor]
                    :or   {pred       NO-MEMO-PRED
-                          trace-hits false}
+                          trace-hits false
+                          concurrent false
+                          eviction   :tiny-lfu}
                    :as   options}]
 
                  [f])}
@@ -705,35 +894,89 @@
 
            raw (.getRawRoot ^clojure.lang.Var v)]
 
-       (swap! dynamic-memos assoc v (return (memo raw options)))))
+       (swap! dynamic-memos assoc v
+              (return (memo raw (with-memo-arity (meta v) options))))))
 
   ([f]
      (redef-as-dynamic-memo f {})))
 
 
+(defn redef-as-scoped-memo
+  "Redefines the named function to be a memoized one within
+  the (memoizing ...) scopes of the calling thread only. Every scope
+  gets a fresh cache, dropped when the scope exits, and the calls
+  within it take no locks nor Var bindings. Out of the scopes the
+  function is not memoized. The function MUST be defined as the
+  dynamic (or ^:redef) one, so that its recursive calls are not
+  direct-linked."
+  {:arglists '([f {:keys [pred]
+                   :or   {pred NO-MEMO-PRED}
+                   :as   options}]
+
+                 [f])}
+  ([f {:keys [pred]
+       :or   {pred NO-MEMO-PRED}
+       :as   options}]
+     (validate-legal-keys [pred] options)
+     (let [[s v] (tassert not-nil? (ns-entry f)
+                          (tstr "Can't find namespace Var for " f))
+
+           m (meta v)
+           _ (assert (or (.isDynamic ^clojure.lang.Var v) (:redef m))
+                     (tstr "The function " s " MUST be dynamic or ^:redef."))
+
+           name (with-meta (:name m) m)]
+
+       (intern *ns* name (jclongra.core.ScopedMemo.
+                          (.getRawRoot ^clojure.lang.Var v) pred))))
+
+  ([f]
+     (redef-as-scoped-memo f {})))
+
+
+(defn memoizing*
+  "Calls the body (a nullary function) within a memoization context
+  for the Vars redefined with redef-as-scoped-memo or
+  redef-as-dynamic-memo."
+  [vars body]
+  (let [scoped?  #(instance? jclongra.core.ScopedMemo (var-root %))
+        scoped   (map var-root (filter scoped? vars))
+        bindings (->> vars
+                      (remove scoped?)
+                      (map (fn [v]
+                             [v ((tassert not-nil? (@dynamic-memos v)
+                                          (tstr "The procedure " v
+                                                " was not redefined as a"
+                                                " scoped/dynamic memo.")))]))
+                      (into {}))]
+
+    (doseq [^jclongra.core.ScopedMemo m scoped]
+      (.enter m))
+    (try
+      (if (seq bindings)
+        (with-bindings* bindings body)
+        (body))
+
+      (finally
+        (doseq [^jclongra.core.ScopedMemo m (reverse scoped)]
+          (.exit m))))))
+
+
 (defmacro memoizing
-  "Executes the body within a dynamic memoization context for the
-  given functions."
+  "Executes the body within a memoization context for the given
+  functions."
   [fs & body]
   (assert (vector? fs))
   (assert (seq fs))
 
-  (let [clause
-        (fn [f]
-          `(~f ((tassert not-nil? (@dynamic-memos (ns-resolve *ns* '~f))
-                         (tstr "The procedure " '~f
-                               " was not redefined as a dynamic memo.")))))
-
-        clauses (apply concat (map clause fs))]
-
-    `(binding [~@clauses] ~@body)))
+  `(memoizing* [~@(map (fn [f] `(var ~f)) fs)] (fn [] ~@body)))
 
 
 ;; (defn ^:dynamic fib
 ;;   [n]
 ;;   (if (< n 2) n (+' (fib (dec n)) (fib (- n 2)))))
 
-;; (redef-as-dynamic-memo fib)
+;; (redef-as-scoped-memo fib)
 
 
 (defn local-memo
@@ -754,6 +997,56 @@
   ([f] (local-memo f NO-MEMO-PRED)))
 
 
+;; TABULATION
+
+(def ^:private TABULATION-BLOCK-SIZE 4096)
+
+
+(defn tabulation
+  "Returns a table of (step table i) for i in [0, n), kept in a
+  primitive long array. The table gets filled bottom-up, in blocks
+  of (:block-size options), up to the first index asked for. @see tab-get.
+  So step may look up the entries of the table with indices lower
+  than i, and the recursive definitions need neither recursion nor
+  memoization.
+
+  When (:parallel options), the whole table is filled at once, in
+  parallel on the fork-join pool; the entries must not depend on one
+  another then.
+
+  The step declared as (fn [t ^long i] ...) with a long result is
+  called without boxing."
+  ([n step {:keys [block-size parallel]
+            :or   {block-size TABULATION-BLOCK-SIZE
+                   parallel   false}
+            :as   options}]
+     (validate-legal-keys [block-size parallel] options)
+     (let [t (jclongra.core.LongTabulation. (int n) step (int block-size))]
+       (if parallel (.fillParallel t) t)))
+
+  ([n step]
+     (tabulation n step {})))
+
+
+(defn tab-get
+  "Returns the i-th entry of the tabulation t. @see tabulation."
+  ^long [^jclongra.core.LongTabulation t ^long i]
+  (.get t i))
+
+
+(defn tab-longs
+  "Returns a copy of the already filled entries of the tabulation t."
+  ^longs [^jclongra.core.LongTabulation t]
+  (.toArray t))
+
+
+;; (def fibs
+;;   (tabulation 91 (fn ^long [t ^long i]
+;;                    (if (< i 2) i (+ (tab-get t (dec i)) (tab-get t (- i 2)))))))
+
+;; (tab-get fibs 90)
+
+
 ;; TYPE HINTING
 
 (defn with-hint
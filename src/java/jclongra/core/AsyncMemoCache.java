@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jclongra.StateError;
+import clojure.lang.IFn;
+import clojure.lang.Util;
+
+/**
+ * A Memo storage holding futures. Callers missing on the same key share one
+ * future. Asynchronous misses (lookupAsync) are computed on the executor,
+ * synchronous ones (lookup) in the calling thread. An entry older than
+ * refreshAfterNanos is recomputed in the background on the next hit, while
+ * the stale value is still being served.
+ */
+public final class AsyncMemoCache implements MemoCache {
+
+  /**
+   * @param refreshAfterNanos
+   *          non-positive means no refreshing
+   */
+  public AsyncMemoCache(Executor executor, long refreshAfterNanos) {
+    if (executor == null) {
+      throw new IllegalArgumentException("The executor must not be null.");
+    }
+    this.executor = executor;
+    this.refreshAfterNanos = refreshAfterNanos;
+  }
+
+  /**
+   * Returns a pool of daemon threads with a bounded queue. When the queue is
+   * full the tasks run in the submitting thread.
+   */
+  public static ExecutorService boundedExecutor(int threads, int queueSize) {
+    final AtomicInteger n = new AtomicInteger();
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "memo-async-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  public CompletableFuture<Object> lookupAsync(Object key, Memo memo) {
+    return lookup(key, memo, true);
+  }
+
+  @Override
+  public Object lookup(Object key, Memo memo) {
+    try {
+      return lookup(key, memo, false).join();
+    }
+    catch (CompletionException e) {
+      throw Util.sneakyThrow(e.getCause() != null ? e.getCause() : e);
+    }
+  }
+
+  private CompletableFuture<Object> lookup(final Object key, final Memo memo,
+      boolean async) {
+    final Object k = mask(key);
+    Entry e = map.get(k);
+    if (e == null) {
+      final Entry fresh = new Entry(new CompletableFuture<Object>(), 0);
+      e = map.putIfAbsent(k, fresh);
+      if (e == null) {
+        if (!async) {
+          load(k, key, fresh, memo);
+          return fresh.future;
+        }
+        try {
+          executor.execute(new Runnable() {
+            @Override
+            public void run() {
+              load(k, key, fresh, memo);
+            }
+          });
+        }
+        catch (RejectedExecutionException ex) {
+          load(k, key, fresh, memo);
+        }
+        return fresh.future;
+      }
+    }
+
+    if (!async && e.owner == Thread.currentThread()) {
+      throw new StateError("Recursive memo call for a key being computed.");
+    }
+    memo.countCacheHit();
+    if (refreshAfterNanos > 0 && e.isStale(refreshAfterNanos)
+        && e.refreshing.compareAndSet(false, true)) {
+      refresh(k, key, e, memo);
+    }
+    return e.future;
+  }
+
+  private void load(Object k, Object key, Entry entry, Memo memo) {
+    Object value;
+    entry.owner = Thread.currentThread();
+    try {
+      long start = memo.clock();
+      value = memo.compute(key);
+      if (memo.admits(key, value, start)) {
+        entry.writeTime = System.nanoTime();
+      }
+      else {
+        map.remove(k, entry);
+      }
+    }
+    catch (Throwable t) {
+      map.remove(k, entry);
+      entry.owner = null;
+      entry.future.completeExceptionally(t);
+      return;
+    }
+    entry.owner = null;
+    entry.future.complete(value);
+  }
+
+  private void refresh(final Object k, final Object key, final Entry stale,
+      final Memo memo) {
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            long start = memo.clock();
+            Object value = memo.compute(key);
+            if (memo.admits(key, value, start)) {
+              map.replace(k, stale, new Entry(
+                  CompletableFuture.completedFuture(value), System.nanoTime()));
+            }
+            else {
+              map.remove(k, stale);
+            }
+          }
+          catch (Throwable t) {
+            // KEEP SERVING THE STALE VALUE, RETRY ON SOME NEXT HIT
+            stale.refreshing.set(false);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      stale.refreshing.set(false);
+    }
+  }
+
+  @Override
+  public void put(Object key, Object value, Memo memo) {
+    map.put(mask(key), new Entry(CompletableFuture.completedFuture(value),
+        System.nanoTime()));
+  }
+
+  @Override
+  public void forEachEntry(IFn f) {
+    for (Map.Entry<Object, Entry> e : map.entrySet()) {
+      CompletableFuture<Object> future = e.getValue().future;
+      if (future.isDone() && !future.isCompletedExceptionally()) {
+        f.invoke(unmask(e.getKey()), future.getNow(null));
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    return map.remove(mask(key)) != null;
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Returns the number of computed entries. The in-flight computations are
+   * not counted.
+   */
+  @Override
+  public int size() {
+    int n = 0;
+    for (Entry e : map.values()) {
+      if (e.future.isDone()) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private static final class Entry {
+
+    final CompletableFuture<Object> future;
+
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 0 until the value is computed
+     */
+    volatile long writeTime;
+
+    /**
+     * The thread computing the value, null when done
+     */
+    volatile Thread owner;
+
+    Entry(CompletableFuture<Object> future, long writeTime) {
+      this.future = future;
+      this.writeTime = writeTime;
+    }
+
+    boolean isStale(long refreshAfterNanos) {
+      long t = writeTime;
+      return t != 0 && System.nanoTime() - t >= refreshAfterNanos;
+    }
+
+  }
+
+  private static Object mask(Object obj) {
+    return obj == null ? NIL : obj;
+  }
+
+  private static Object unmask(Object obj) {
+    return obj == NIL ? null : obj;
+  }
+
+  private static final Object NIL = new Object();
+
+  private final ConcurrentMap<Object, Entry> map =
+      new ConcurrentHashMap<Object, Entry>();
+
+  private final Executor executor;
+
+  private final long refreshAfterNanos;
+
+}
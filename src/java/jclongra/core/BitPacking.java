@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Block-based frame-of-reference (FOR) bit-packing of long[] and int[]. Every
+ * block of up to 128 values is stored as its minimum and the differences
+ * from the minimum, each in the number of bits the greatest of them needs.
+ * With delta = true the differences of the consecutive values get packed
+ * instead of the values, so the monotonic sequences take a few bits per value.
+ *
+ * <pre>
+ * packed := mode:byte count:varint block*
+ * block  := zigzag(min):varint width:byte bits[ceil(len * width / 8)]
+ * </pre>
+ *
+ * The bits are little-endian, the first value in the lowest bits.
+ */
+public final class BitPacking {
+
+  public static byte[] packLongs(long[] values, boolean delta) {
+    return pack(values, null, values.length, delta);
+  }
+
+  public static byte[] packInts(int[] values, boolean delta) {
+    return pack(null, values, values.length, delta);
+  }
+
+  public static long[] unpackLongs(byte[] b, int off, int len) {
+    long[] result = new long[count(b, off)];
+    unpack(b, off, len, result, null);
+    return result;
+  }
+
+  public static int[] unpackInts(byte[] b, int off, int len) {
+    int[] result = new int[count(b, off)];
+    unpack(b, off, len, null, result);
+    return result;
+  }
+
+  private static byte[] pack(long[] longs, int[] ints, int n, boolean delta) {
+    int blocks = (n + BLOCK - 1) / BLOCK;
+    long[] scratch = new long[BLOCK];
+    long[] mins = new long[blocks];
+    int[] widths = new int[blocks];
+
+    // 1. THE FRAMES AND THE EXACT SIZE
+    int size = 1 + Bits.varLongSize(n);
+    long prev = 0;
+    for (int j = 0; j < blocks; j++) {
+      int len = fill(longs, ints, j * BLOCK, n, scratch);
+      if (delta) {
+        prev = toDeltas(scratch, len, prev);
+      }
+      long min = scratch[0];
+      for (int i = 1; i < len; i++) {
+        min = Math.min(min, scratch[i]);
+      }
+      long bits = 0;
+      for (int i = 0; i < len; i++) {
+        bits |= scratch[i] - min;
+      }
+      mins[j] = min;
+      widths[j] = 64 - Long.numberOfLeadingZeros(bits);
+      size += Bits.varLongSize(Bits.zigZag(min)) + 1 + bytesOf(len, widths[j]);
+    }
+
+    // 2. THE PACKING
+    byte[] out = new byte[size];
+    ByteBuffer le = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
+    out[0] = delta ? DELTA : FOR;
+    int pos = Bits.putVarLong(out, 1, n);
+    prev = 0;
+    for (int j = 0; j < blocks; j++) {
+      int len = fill(longs, ints, j * BLOCK, n, scratch);
+      if (delta) {
+        prev = toDeltas(scratch, len, prev);
+      }
+      long min = mins[j];
+      int w = widths[j];
+      pos = Bits.putVarLong(out, pos, Bits.zigZag(min));
+      out[pos++] = (byte) w;
+      if (w == 0) {
+        continue;
+      }
+
+      long acc = 0;
+      int bits = 0;
+      for (int i = 0; i < len; i++) {
+        long v = scratch[i] - min;
+        acc |= v << bits;
+        if (bits + w >= 64) {
+          le.putLong(pos, acc);
+          pos += 8;
+          acc = bits == 0 ? 0 : v >>> (64 - bits);
+          bits = bits + w - 64;
+        }
+        else {
+          bits += w;
+        }
+      }
+      for (; bits > 0; bits -= 8) {
+        out[pos++] = (byte) acc;
+        acc >>>= 8;
+      }
+    }
+    return out;
+  }
+
+  private static void unpack(byte[] b, int off, int len, long[] longs,
+      int[] ints) {
+    int end = off + len;
+    ByteBuffer le = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+    boolean delta = b[off] == DELTA;
+    long n = Bits.getVarLong(b, off + 1);
+    int pos = off + 1 + Bits.varLongSize(n);
+    long[] target = longs != null ? longs : new long[BLOCK];
+
+    long prev = 0;
+    for (int start = 0; start < n; start += BLOCK) {
+      int count = (int) Math.min(BLOCK, n - start);
+      int from = longs != null ? start : 0;
+      long zmin = Bits.getVarLong(b, pos);
+      pos += Bits.varLongSize(zmin);
+      long min = Bits.unZigZag(zmin);
+      int w = b[pos++];
+      if (w < 0 || w > 64) {
+        throw new IllegalArgumentException("Illegal bit width " + w);
+      }
+
+      if (w == 0) {
+        for (int i = 0; i < count; i++) {
+          target[from + i] = min;
+        }
+      }
+      else {
+        long mask = w == 64 ? -1L : (1L << w) - 1;
+        long bitPos = 0;
+        for (int i = 0; i < count; i++) {
+          int ix = pos + (int) (bitPos >>> 3);
+          int shift = (int) (bitPos & 7);
+          long v = (ix + 8 <= end ? le.getLong(ix) : tail(b, ix, end)) >>> shift;
+          if (shift + w > 64) {
+            v |= (long) (b[ix + 8] & 0xFF) << (64 - shift);
+          }
+          target[from + i] = (v & mask) + min;
+          bitPos += w;
+        }
+        pos += bytesOf(count, w);
+      }
+
+      if (delta) {
+        for (int i = 0; i < count; i++) {
+          prev += target[from + i];
+          target[from + i] = prev;
+        }
+      }
+      if (ints != null) {
+        for (int i = 0; i < count; i++) {
+          ints[start + i] = (int) target[i];
+        }
+      }
+    }
+  }
+
+  private static int count(byte[] b, int off) {
+    byte mode = b[off];
+    if (mode != FOR && mode != DELTA) {
+      throw new IllegalArgumentException("Not bit-packed values, mode "
+          + mode);
+    }
+    long n = Bits.getVarLong(b, off + 1);
+    if (n > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many values " + n);
+    }
+    return (int) n;
+  }
+
+  private static int fill(long[] longs, int[] ints, int start, int n,
+      long[] scratch) {
+    int len = Math.min(BLOCK, n - start);
+    if (longs != null) {
+      System.arraycopy(longs, start, scratch, 0, len);
+    }
+    else {
+      for (int i = 0; i < len; i++) {
+        scratch[i] = ints[start + i];
+      }
+    }
+    return len;
+  }
+
+  /**
+   * Replaces the values with their differences. Returns the last value.
+   */
+  private static long toDeltas(long[] values, int len, long prev) {
+    for (int i = 0; i < len; i++) {
+      long v = values[i];
+      values[i] = v - prev;
+      prev = v;
+    }
+    return prev;
+  }
+
+  /**
+   * Reads the (less than 8) bytes before end, little-endian.
+   */
+  private static long tail(byte[] b, int ix, int end) {
+    long v = 0;
+    for (int i = end - 1; i >= ix; i--) {
+      v = (v << 8) | (b[i] & 0xFF);
+    }
+    return v;
+  }
+
+  private static int bytesOf(int len, int width) {
+    return (len * width + 7) >>> 3;
+  }
+
+  private static final int BLOCK = 128;
+
+  private static final byte FOR = 0;
+
+  private static final byte DELTA = 1;
+
+  private BitPacking() {
+    ;
+  }
+
+}
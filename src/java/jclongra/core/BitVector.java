@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.BitSet;
+
+import clojure.lang.IFn;
+
+/**
+ * An immutable vector of bits with the succinct rank/select directories:
+ * rank(i) (the number of 1s before i) takes a lookup and at most 7 popcounts,
+ * select(k) (the position of the k-th 1) starts from a sample taken every
+ * 512 ones and scans the blocks of 512 bits from there.
+ */
+public final class BitVector {
+
+  /**
+   * @param words
+   *          the bits, little-endian (like in BitSet.toLongArray()), taken
+   *          over (not copied), with no 1s at or after length
+   * @param length
+   *          the number of bits, at most 64 * words.length
+   */
+  public BitVector(long[] words, long length) {
+    if (length < 0 || length > 64L * words.length) {
+      throw new IllegalArgumentException("Illegal length " + length);
+    }
+    this.words = words;
+    this.length = length;
+
+    // RANKS
+    int blocks = (words.length + BLOCK_WORDS - 1) / BLOCK_WORDS;
+    this.ranks = new long[blocks + 1];
+    long ones = 0;
+    for (int b = 0; b < blocks; b++) {
+      ranks[b] = ones;
+      int end = Math.min((b + 1) * BLOCK_WORDS, words.length);
+      for (int i = b * BLOCK_WORDS; i < end; i++) {
+        ones += Long.bitCount(words[i]);
+      }
+    }
+    ranks[blocks] = ones;
+    this.cardinality = ones;
+
+    // SELECT SAMPLES: THE BLOCK OF EVERY SAMPLE_RATE-TH 1
+    int samples = (int) ((ones + SAMPLE_RATE - 1) / SAMPLE_RATE);
+    this.selectSamples = new int[samples + 1];
+    int s = 0;
+    for (int b = 0; b < blocks && s < samples; b++) {
+      while (s < samples && (long) s * SAMPLE_RATE < ranks[b + 1]) {
+        selectSamples[s++] = b;
+      }
+    }
+    selectSamples[samples] = blocks;
+  }
+
+  public static BitVector of(BitSet bits) {
+    return new BitVector(bits.toLongArray(), bits.length());
+  }
+
+  /**
+   * Returns the vector of the given length with the bits at the indices set.
+   */
+  public static BitVector ofIndices(long[] indices, long length) {
+    long[] words = new long[(int) ((length + 63) >>> 6)];
+    for (long i : indices) {
+      if (i < 0 || i >= length) {
+        throw new IndexOutOfBoundsException(String.valueOf(i));
+      }
+      words[(int) (i >>> 6)] |= 1L << i;
+    }
+    return new BitVector(words, length);
+  }
+
+  public long length() {
+    return length;
+  }
+
+  public long cardinality() {
+    return cardinality;
+  }
+
+  public boolean get(long i) {
+    checkIndex(i);
+    return (words[(int) (i >>> 6)] & (1L << i)) != 0;
+  }
+
+  /**
+   * Returns the number of 1s in [0, i).
+   */
+  public long rank(long i) {
+    if (i < 0 || i > length) {
+      throw new IndexOutOfBoundsException(String.valueOf(i));
+    }
+    int w = (int) (i >>> 6);
+    int b = w / BLOCK_WORDS;
+    long r = ranks[b];
+    for (int j = b * BLOCK_WORDS; j < w; j++) {
+      r += Long.bitCount(words[j]);
+    }
+    if ((i & 63) != 0) {
+      r += Long.bitCount(words[w] & ((1L << i) - 1));
+    }
+    return r;
+  }
+
+  /**
+   * Returns the index of the k-th (from 0) 1, -1 if there are not that many.
+   */
+  public long select(long k) {
+    if (k < 0 || k >= cardinality) {
+      return -1;
+    }
+    int s = (int) (k / SAMPLE_RATE);
+    int b = selectSamples[s];
+    int last = selectSamples[s + 1];
+    // THE LAST BLOCK WITH ranks[b] <= k
+    while (b < last && ranks[b + 1] <= k) {
+      b++;
+    }
+    long r = k - ranks[b];
+    int w = b * BLOCK_WORDS;
+    for (int bits; (bits = Long.bitCount(words[w])) <= r; w++) {
+      r -= bits;
+    }
+    return ((long) w << 6) + selectInWord(words[w], (int) r);
+  }
+
+  /**
+   * Returns the index of the first 1 at or after from, -1 if none.
+   */
+  public long nextSetBit(long from) {
+    if (from < 0) {
+      throw new IndexOutOfBoundsException(String.valueOf(from));
+    }
+    if (from >= length) {
+      return -1;
+    }
+    int w = (int) (from >>> 6);
+    long word = words[w] & (-1L << from);
+    while (true) {
+      if (word != 0) {
+        long i = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+        return i < length ? i : -1;
+      }
+      if (++w == words.length) {
+        return -1;
+      }
+      word = words[w];
+    }
+  }
+
+  /**
+   * Returns the indices of all the 1s, ascending.
+   */
+  public long[] setBits() {
+    long[] result = new long[(int) cardinality];
+    int n = 0;
+    for (int w = 0; w < words.length; w++) {
+      for (long word = words[w]; word != 0; word &= word - 1) {
+        result[n++] = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Calls f with the index of every 1, ascending. Prim f (IFn.LO) gets the
+   * indices unboxed.
+   */
+  public void forEachSetBit(IFn f) {
+    IFn.LO prim = f instanceof IFn.LO ? (IFn.LO) f : null;
+    for (int w = 0; w < words.length; w++) {
+      for (long word = words[w]; word != 0; word &= word - 1) {
+        long i = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+        if (prim != null) {
+          prim.invokePrim(i);
+        }
+        else {
+          f.invoke(i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the position of the r-th (from 0) 1 in the word. The word must
+   * have more than r 1s.
+   */
+  public static int selectInWord(long word, int r) {
+    // SKIP THE BYTES HOLDING LESS THAN r + 1 ONES
+    int shift = 0;
+    while (true) {
+      int ones = Long.bitCount(word & (0xFFL << shift));
+      if (ones > r) {
+        break;
+      }
+      r -= ones;
+      shift += 8;
+    }
+    long b = (word >>> shift) & 0xFF;
+    for (; r > 0; r--) {
+      b &= b - 1;
+    }
+    return shift + Long.numberOfTrailingZeros(b);
+  }
+
+  private void checkIndex(long i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException(String.valueOf(i));
+    }
+  }
+
+  private static final int BLOCK_WORDS = 8;
+
+  private static final int SAMPLE_RATE = 512;
+
+  private final long[] words;
+
+  private final long length;
+
+  private final long cardinality;
+
+  /**
+   * The number of 1s before every block of BLOCK_WORDS words.
+   */
+  private final long[] ranks;
+
+  private final int[] selectSamples;
+
+}
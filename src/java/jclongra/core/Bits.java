@@ -6,6 +6,8 @@ package jclongra.core;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
@@ -76,13 +78,22 @@ public final class Bits {
    * @return
    */
   public static BitSet bytesToBitSet(byte[] bytes) {
-    BitSet bits = new BitSet();
-    for (int i = 0; i < bytes.length * 8; i++) {
-      if ((bytes[bytes.length - i / 8 - 1] & (1 << (i % 8))) > 0) {
-        bits.set(i);
+    int n = bytes.length;
+    long[] words = new long[(n + 7) >>> 3];
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    // THE WORD j ARE THE 8 BYTES ENDING AT n - 8j, BIG-ENDIAN
+    int j = 0;
+    for (; n - 8 * j - 8 >= 0; j++) {
+      words[j] = buf.getLong(n - 8 * j - 8);
+    }
+    if (j < words.length) {
+      long w = 0;
+      for (int i = 0; i < n - 8 * j; i++) {
+        w = (w << 8) | (bytes[i] & 0xFFL);
       }
+      words[j] = w;
     }
-    return bits;
+    return BitSet.valueOf(words);
   }
 
   public static void putBoolean(byte[] b, int off, boolean val) {
@@ -218,26 +229,35 @@ public final class Bits {
    * @return
    */
   public static byte[] bitSetToBytes(BitSet bits) {
-    byte[] bytes = new byte[bits.length() / 8 + 1];
-    for (int i = 0; i < bits.length(); i++) {
-      if (bits.get(i)) {
-        bytes[bytes.length - i / 8 - 1] |= 1 << (i % 8);
+    long[] words = bits.toLongArray();
+    int n = bits.length() / 8 + 1;
+    byte[] bytes = new byte[n];
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    for (int j = 0; j < words.length; j++) {
+      int end = n - 8 * j;
+      if (end >= 8) {
+        buf.putLong(end - 8, words[j]);
+      }
+      else {
+        long w = words[j];
+        for (int i = end - 1; i >= 0; i--) {
+          bytes[i] = (byte) w;
+          w >>>= 8;
+        }
       }
     }
     return bytes;
   }
 
-  private static final double LN2 = Math.log(2);
-
   /**
    * @param n
    *          either negative or non-negative
-   * @return bit length for n
+   * @return bit length for n, i.e. ceil(log2(n < 0 ? -n : n + 1)), exact
    */
   public static int bitLength(long n) {
-    n = n < 0 ? -n : n + 1;
-    double lg2 = Math.log(n) / LN2;
-    return (int) Math.ceil(lg2);
+    long m = n < 0 ? -n : n + 1;
+    // m IS UNSIGNED HERE, 2^63 FOR Long.MIN_VALUE AND Long.MAX_VALUE
+    return 64 - Long.numberOfLeadingZeros(m - 1);
   }
 
   private static final Long ZERO = 0L;
@@ -253,22 +273,24 @@ public final class Bits {
     if (n < 0) {
       throw new IllegalArgumentException("Negative argument " + n);
     }
-    List<Long> result = new ArrayList<>(bitLength(n));
-    if (n == 0) {
-      result.add(ZERO);
-      return result;
+    int len = Math.max(bitLength(n), 1);
+    List<Long> result = new ArrayList<>(len);
+    for (int i = 0; i < len; i++) {
+      result.add(((n >>> i) & 1) == 0 ? ZERO : ONE);
     }
+    return result;
+  }
 
-    while (n != 0) {
-      if (n % 2 == 0) {
-        result.add(ZERO);
-      }
-      else {
-        result.add(ONE);
-      }
-      n = n >> 1;
+  /**
+   * Returns the indices of the 1s of n, ascending (a primitive alternative to
+   * longBits).
+   */
+  public static int[] setBits(long n) {
+    int[] result = new int[Long.bitCount(n)];
+    int i = 0;
+    for (; n != 0; n &= n - 1) {
+      result[i++] = Long.numberOfTrailingZeros(n);
     }
-
     return result;
   }
 
@@ -316,11 +338,8 @@ public final class Bits {
       throw new IllegalArgumentException(
           "The length of byte array must be a multiple of 8.");
     }
-    long[] result = new long[bytes.length / 8];
-    for (int i = 0; i < result.length; i++) {
-      result[i] = getLong(bytes, i * 8);
-    }
-    return result;
+    return BitsCodec.bytesToLongs(bytes, 0, bytes.length,
+        ByteOrder.BIG_ENDIAN);
   }
 
   public static List<Long> bytesToLongsList(byte[] bytes) {
@@ -337,11 +356,7 @@ public final class Bits {
   }
 
   public static byte[] longsArrayToBytes(long[] longs) {
-    byte[] result = new byte[longs.length * 8];
-    for (int i = 0; i < longs.length; i++) {
-      putLong(result, i * 8, longs[i]);
-    }
-    return result;
+    return BitsCodec.longsToBytes(longs, ByteOrder.BIG_ENDIAN);
   }
 
   public static byte[] longsSeqToBytes(ISeq seq, int seqCount) {
@@ -363,6 +378,120 @@ public final class Bits {
     return result;
   }
 
+  // LEB128 VARINTS, ZIGZAG
+
+  /**
+   * Maps the signed n to an unsigned one so that the values of small
+   * magnitudes get small varints: 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
+   */
+  public static long zigZag(long n) {
+    return (n << 1) ^ (n >> 63);
+  }
+
+  public static long unZigZag(long n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  public static int zigZag(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  public static int unZigZag(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /**
+   * Returns the number of bytes of the varint of v (unsigned).
+   */
+  public static int varLongSize(long v) {
+    return v == 0 ? 1 : (63 - Long.numberOfLeadingZeros(v)) / 7 + 1;
+  }
+
+  /**
+   * Puts v (unsigned) as a LEB128 varint, 7 bits per byte starting with the
+   * least significant ones. Returns the offset right after the varint.
+   */
+  public static int putVarLong(byte[] b, int off, long v) {
+    while ((v & ~0x7FL) != 0) {
+      b[off++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    b[off++] = (byte) v;
+    return off;
+  }
+
+  public static long getVarLong(byte[] b, int off) {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte x = b[off++];
+      result |= (long) (x & 0x7F) << shift;
+      if (x >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint at " + off);
+  }
+
+  public static void putVarLong(ByteBuffer buf, long v) {
+    while ((v & ~0x7FL) != 0) {
+      buf.put((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    buf.put((byte) v);
+  }
+
+  public static long getVarLong(ByteBuffer buf) {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte x = buf.get();
+      result |= (long) (x & 0x7F) << shift;
+      if (x >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint at "
+        + buf.position());
+  }
+
+  public static byte[] varLongToBytes(long v) {
+    byte[] arr = new byte[varLongSize(v)];
+    putVarLong(arr, 0, v);
+    return arr;
+  }
+
+  /**
+   * Returns the zigzag varints of the values, one after another.
+   */
+  public static byte[] longsArrayToVarBytes(long[] longs) {
+    int size = 0;
+    for (int i = 0; i < longs.length; i++) {
+      size += varLongSize(zigZag(longs[i]));
+    }
+    byte[] result = new byte[size];
+    int off = 0;
+    for (int i = 0; i < longs.length; i++) {
+      off = putVarLong(result, off, zigZag(longs[i]));
+    }
+    return result;
+  }
+
+  public static long[] varBytesToLongsArray(byte[] bytes) {
+    int n = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] >= 0) {
+        n++;
+      }
+    }
+    long[] result = new long[n];
+    int off = 0;
+    for (int i = 0; i < n; i++) {
+      long v = getVarLong(bytes, off);
+      off += varLongSize(v);
+      result[i] = unZigZag(v);
+    }
+    return result;
+  }
+
   public static byte[] bigDecimalToBytes(BigDecimal d) {
     byte[] unscaledBytes = d.unscaledValue().toByteArray();
     byte[] result = new byte[4 + unscaledBytes.length];
@@ -372,39 +501,106 @@ public final class Bits {
     return result;
   }
 
+  /**
+   * Writes the BigDecimal (like bigDecimalToBytes) into the sink, with no
+   * intermediate result array. Returns the number of bytes written.
+   */
+  public static int writeBigDecimal(BigDecimal d, ByteSink sink) {
+    BigInteger unscaled = d.unscaledValue();
+    int size = bigIntegerSize(unscaled);
+    ByteBuffer buf = sink.ensure(4 + size);
+    buf.putInt(d.scale());
+    putBigInteger(buf, unscaled, size);
+    return 4 + size;
+  }
+
   public static BigDecimal bytesToBigDecimal(byte[] bytes) {
-    int scale = getInt(bytes, 0);
-    int n = bytes.length - 4;
-    byte[] unscaledBytes = new byte[n];
-    System.arraycopy(bytes, 4, unscaledBytes, 0, n);
+    return readBigDecimal(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  /**
+   * Reads the BigDecimal from len bytes of the buffer at index (absolute).
+   */
+  public static BigDecimal readBigDecimal(ByteBuffer buf, int index, int len) {
+    ByteBuffer b = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+    b.position(index);
+    int scale = b.getInt();
+    byte[] unscaledBytes = new byte[len - 4];
+    b.get(unscaledBytes);
 
     return new BigDecimal(new BigInteger(unscaledBytes), scale);
   }
 
+  /**
+   * Returns the ratio as numerlen:int numer denom (the two's complement
+   * bytes). The array is the only one allocated when both parts fit in longs.
+   */
   public static byte[] ratioToBytes(Ratio ratio) {
-    byte[] numer = ratio.numerator.toByteArray();
-    byte[] denom = ratio.denominator.toByteArray();
-
-    byte[] result = new byte[4 + numer.length + denom.length];
-
-    putInt(result, 0, numer.length);
-    System.arraycopy(numer, 0, result, 4, numer.length);
-    System.arraycopy(denom, 0, result, 4 + numer.length, denom.length);
+    int numerlen = bigIntegerSize(ratio.numerator);
+    int denomlen = bigIntegerSize(ratio.denominator);
+    byte[] result = new byte[4 + numerlen + denomlen];
+    ByteBuffer buf = ByteBuffer.wrap(result);
+    buf.putInt(numerlen);
+    putBigInteger(buf, ratio.numerator, numerlen);
+    putBigInteger(buf, ratio.denominator, denomlen);
 
     return result;
   }
 
+  /**
+   * Writes the Ratio (like ratioToBytes) into the sink, with no intermediate
+   * result array. Returns the number of bytes written.
+   */
+  public static int writeRatio(Ratio ratio, ByteSink sink) {
+    int numerlen = bigIntegerSize(ratio.numerator);
+    int denomlen = bigIntegerSize(ratio.denominator);
+    int n = 4 + numerlen + denomlen;
+    ByteBuffer buf = sink.ensure(n);
+    buf.putInt(numerlen);
+    putBigInteger(buf, ratio.numerator, numerlen);
+    putBigInteger(buf, ratio.denominator, denomlen);
+    return n;
+  }
+
   public static Ratio bytesToRatio(byte[] bytes) {
-    int numerlen = getInt(bytes, 0);
+    return readRatio(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  /**
+   * Reads the Ratio from len bytes of the buffer at index (absolute).
+   */
+  public static Ratio readRatio(ByteBuffer buf, int index, int len) {
+    ByteBuffer b = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+    b.position(index);
+    int numerlen = b.getInt();
     byte[] numer = new byte[numerlen];
+    byte[] denom = new byte[len - 4 - numerlen];
+    b.get(numer).get(denom);
 
-    int denomlen = bytes.length - numerlen - 4;
-    byte[] denom = new byte[denomlen];
+    return new Ratio(new BigInteger(numer), new BigInteger(denom));
+  }
 
-    System.arraycopy(bytes, 4, numer, 0, numerlen);
-    System.arraycopy(bytes, 4 + numerlen, denom, 0, denomlen);
+  /**
+   * Returns the length of n.toByteArray().
+   */
+  private static int bigIntegerSize(BigInteger n) {
+    return n.bitLength() / 8 + 1;
+  }
 
-    return new Ratio(new BigInteger(numer), new BigInteger(denom));
+  /**
+   * Puts the size bytes of n.toByteArray(), with no array when n fits in a
+   * long.
+   */
+  private static void putBigInteger(ByteBuffer buf, BigInteger n, int size) {
+    if (size <= 8) {
+      long v = n.longValue();
+      for (int i = size - 1; i >= 0; i--) {
+        buf.put((byte) (v >>> (i << 3)));
+      }
+    }
+    else {
+      buf.put(n.toByteArray());
+    }
   }
 
   private Bits() {
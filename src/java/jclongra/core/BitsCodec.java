@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Bulk conversions between arrays of primitives and bytes, in either byte
+ * order, working on heap and direct ByteBuffers alike. The values are moved
+ * through the typed views of the buffers (asLongBuffer() etc.), so the JVM
+ * copies (and swaps if needed) whole ranges instead of assembling the values
+ * byte by byte like Bits does.
+ *
+ * <p>
+ * The index arguments are absolute, the positions and limits of the passed
+ * buffers are never changed.
+ */
+public final class BitsCodec {
+
+  // LONGS
+
+  public static void putLongs(ByteBuffer dst, int index, long[] src, int off,
+      int len, ByteOrder order) {
+    view(dst, index, order).asLongBuffer().put(src, off, len);
+  }
+
+  public static void getLongs(ByteBuffer src, int index, long[] dst, int off,
+      int len, ByteOrder order) {
+    view(src, index, order).asLongBuffer().get(dst, off, len);
+  }
+
+  public static byte[] longsToBytes(long[] src, ByteOrder order) {
+    byte[] result = new byte[src.length << 3];
+    putLongs(ByteBuffer.wrap(result), 0, src, 0, src.length, order);
+    return result;
+  }
+
+  public static long[] bytesToLongs(byte[] src, int off, int len,
+      ByteOrder order) {
+    long[] result = new long[count(len, 8)];
+    getLongs(ByteBuffer.wrap(src), off, result, 0, result.length, order);
+    return result;
+  }
+
+  // INTS
+
+  public static void putInts(ByteBuffer dst, int index, int[] src, int off,
+      int len, ByteOrder order) {
+    view(dst, index, order).asIntBuffer().put(src, off, len);
+  }
+
+  public static void getInts(ByteBuffer src, int index, int[] dst, int off,
+      int len, ByteOrder order) {
+    view(src, index, order).asIntBuffer().get(dst, off, len);
+  }
+
+  public static byte[] intsToBytes(int[] src, ByteOrder order) {
+    byte[] result = new byte[src.length << 2];
+    putInts(ByteBuffer.wrap(result), 0, src, 0, src.length, order);
+    return result;
+  }
+
+  public static int[] bytesToInts(byte[] src, int off, int len,
+      ByteOrder order) {
+    int[] result = new int[count(len, 4)];
+    getInts(ByteBuffer.wrap(src), off, result, 0, result.length, order);
+    return result;
+  }
+
+  // SHORTS
+
+  public static void putShorts(ByteBuffer dst, int index, short[] src,
+      int off, int len, ByteOrder order) {
+    view(dst, index, order).asShortBuffer().put(src, off, len);
+  }
+
+  public static void getShorts(ByteBuffer src, int index, short[] dst,
+      int off, int len, ByteOrder order) {
+    view(src, index, order).asShortBuffer().get(dst, off, len);
+  }
+
+  public static byte[] shortsToBytes(short[] src, ByteOrder order) {
+    byte[] result = new byte[src.length << 1];
+    putShorts(ByteBuffer.wrap(result), 0, src, 0, src.length, order);
+    return result;
+  }
+
+  public static short[] bytesToShorts(byte[] src, int off, int len,
+      ByteOrder order) {
+    short[] result = new short[count(len, 2)];
+    getShorts(ByteBuffer.wrap(src), off, result, 0, result.length, order);
+    return result;
+  }
+
+  // FLOATS
+
+  public static void putFloats(ByteBuffer dst, int index, float[] src,
+      int off, int len, ByteOrder order) {
+    view(dst, index, order).asFloatBuffer().put(src, off, len);
+  }
+
+  public static void getFloats(ByteBuffer src, int index, float[] dst,
+      int off, int len, ByteOrder order) {
+    view(src, index, order).asFloatBuffer().get(dst, off, len);
+  }
+
+  public static byte[] floatsToBytes(float[] src, ByteOrder order) {
+    byte[] result = new byte[src.length << 2];
+    putFloats(ByteBuffer.wrap(result), 0, src, 0, src.length, order);
+    return result;
+  }
+
+  public static float[] bytesToFloats(byte[] src, int off, int len,
+      ByteOrder order) {
+    float[] result = new float[count(len, 4)];
+    getFloats(ByteBuffer.wrap(src), off, result, 0, result.length, order);
+    return result;
+  }
+
+  // DOUBLES
+
+  public static void putDoubles(ByteBuffer dst, int index, double[] src,
+      int off, int len, ByteOrder order) {
+    view(dst, index, order).asDoubleBuffer().put(src, off, len);
+  }
+
+  public static void getDoubles(ByteBuffer src, int index, double[] dst,
+      int off, int len, ByteOrder order) {
+    view(src, index, order).asDoubleBuffer().get(dst, off, len);
+  }
+
+  public static byte[] doublesToBytes(double[] src, ByteOrder order) {
+    byte[] result = new byte[src.length << 3];
+    putDoubles(ByteBuffer.wrap(result), 0, src, 0, src.length, order);
+    return result;
+  }
+
+  public static double[] bytesToDoubles(byte[] src, int off, int len,
+      ByteOrder order) {
+    double[] result = new double[count(len, 8)];
+    getDoubles(ByteBuffer.wrap(src), off, result, 0, result.length, order);
+    return result;
+  }
+
+  /**
+   * Returns a buffer sharing the content of buf, starting at index, with the
+   * given byte order.
+   */
+  private static ByteBuffer view(ByteBuffer buf, int index, ByteOrder order) {
+    ByteBuffer b = buf.duplicate();
+    b.position(index);
+    return b.slice().order(order);
+  }
+
+  private static int count(int len, int size) {
+    if (len % size != 0) {
+      throw new IllegalArgumentException("The length of bytes " + len
+          + " must be a multiple of " + size);
+    }
+    return len / size;
+  }
+
+  private BitsCodec() {
+    ;
+  }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import jclongra.TypeError;
+
+/**
+ * A Bloom filter of byte keys (byte[], Bytes, ByteBuffer ranges) or of their
+ * 64-bit hashes (@see Hashing#xxHash64(byte[], int, int, long)). The k probes
+ * are derived from the one hash by double hashing.
+ *
+ * <p>
+ * The blocked variant puts all the probes of a key into one 512-bit block (a
+ * cache line), so a lookup touches a single line of memory, at the cost of a
+ * slightly higher false positive rate.
+ *
+ * <p>
+ * Not thread-safe for the concurrent adds.
+ */
+public final class BloomFilter {
+
+  /**
+   * Returns a filter sized for the expected number of keys and the false
+   * positive probability fpp.
+   */
+  public static BloomFilter create(long expected, double fpp) {
+    return create(expected, fpp, false);
+  }
+
+  public static BloomFilter createBlocked(long expected, double fpp) {
+    return create(expected, fpp, true);
+  }
+
+  private static BloomFilter create(long expected, double fpp,
+      boolean blocked) {
+    if (expected <= 0) {
+      throw new IllegalArgumentException("Illegal expected count " + expected);
+    }
+    if (!(fpp > 0 && fpp < 1)) {
+      throw new IllegalArgumentException("Illegal fpp " + fpp);
+    }
+    double bits = -expected * Math.log(fpp) / (LN2 * LN2);
+    long words = Math.max((long) Math.ceil(bits / 64), 1);
+    if (blocked) {
+      words = (words + BLOCK_WORDS - 1) / BLOCK_WORDS * BLOCK_WORDS;
+    }
+    if (words > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Too big a filter for " + expected
+          + " keys");
+    }
+    int hashes = (int) Math.max(Math.round(bits / expected * LN2), 1);
+    return new BloomFilter(new long[(int) words], Math.min(hashes, MAX_HASHES),
+        blocked);
+  }
+
+  private BloomFilter(long[] words, int hashes, boolean blocked) {
+    this.words = words;
+    this.hashes = hashes;
+    this.blocked = blocked;
+    this.bitSize = 64L * words.length;
+  }
+
+  public long bitSize() {
+    return bitSize;
+  }
+
+  public int hashCount() {
+    return hashes;
+  }
+
+  public boolean isBlocked() {
+    return blocked;
+  }
+
+  public static long hash(byte[] b, int off, int len) {
+    return Hashing.xxHash64(b, off, len, 0);
+  }
+
+  public void add(byte[] b) {
+    addHash(hash(b, 0, b.length));
+  }
+
+  public void add(byte[] b, int off, int len) {
+    addHash(hash(b, off, len));
+  }
+
+  public void add(ByteBuffer buf, int index, int len) {
+    addHash(Hashing.xxHash64(buf, index, len, 0));
+  }
+
+  public boolean mightContain(byte[] b) {
+    return mightContainHash(hash(b, 0, b.length));
+  }
+
+  public boolean mightContain(byte[] b, int off, int len) {
+    return mightContainHash(hash(b, off, len));
+  }
+
+  public boolean mightContain(ByteBuffer buf, int index, int len) {
+    return mightContainHash(Hashing.xxHash64(buf, index, len, 0));
+  }
+
+  public void addHash(long h) {
+    long h2 = Hashing.mix64(h ^ PROBE_SEED) | 1;
+    if (blocked) {
+      int base = blockBase(h);
+      for (int i = 0; i < hashes; i++, h2 += h) {
+        int bit = (int) (h2 >>> 55);
+        words[base + (bit >>> 6)] |= 1L << bit;
+      }
+    }
+    else {
+      long g = h;
+      for (int i = 0; i < hashes; i++, g += h2) {
+        long bit = (g & Long.MAX_VALUE) % bitSize;
+        words[(int) (bit >>> 6)] |= 1L << bit;
+      }
+    }
+  }
+
+  public boolean mightContainHash(long h) {
+    long h2 = Hashing.mix64(h ^ PROBE_SEED) | 1;
+    if (blocked) {
+      int base = blockBase(h);
+      for (int i = 0; i < hashes; i++, h2 += h) {
+        int bit = (int) (h2 >>> 55);
+        if ((words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+    }
+    else {
+      long g = h;
+      for (int i = 0; i < hashes; i++, g += h2) {
+        long bit = (g & Long.MAX_VALUE) % bitSize;
+        if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds all the keys, every one being a byte[], a Bytes or a hash (Long).
+   */
+  public void addAll(List<?> keys) {
+    for (Object key : keys) {
+      addHash(hashOf(key));
+    }
+  }
+
+  public void addAllHashes(long[] hs) {
+    for (long h : hs) {
+      addHash(h);
+    }
+  }
+
+  /**
+   * Returns the results of mightContain for all the keys, every one being a
+   * byte[], a Bytes or a hash (Long).
+   */
+  public boolean[] mightContainAll(List<?> keys) {
+    boolean[] result = new boolean[keys.size()];
+    int i = 0;
+    for (Object key : keys) {
+      result[i++] = mightContainHash(hashOf(key));
+    }
+    return result;
+  }
+
+  public boolean[] mightContainAllHashes(long[] hs) {
+    boolean[] result = new boolean[hs.length];
+    for (int i = 0; i < hs.length; i++) {
+      result[i] = mightContainHash(hs[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Adds all the keys of the other filter (of the same shape) to this one.
+   */
+  public void or(BloomFilter other) {
+    if (other.words.length != words.length || other.hashes != hashes
+        || other.blocked != blocked) {
+      throw new IllegalArgumentException("Incompatible Bloom filters.");
+    }
+    for (int i = 0; i < words.length; i++) {
+      words[i] |= other.words[i];
+    }
+  }
+
+  /**
+   * The serialized form (big-endian):
+   *
+   * <pre>
+   * filter := MAGIC:int blocked:byte hashes:byte nwords:int long{nwords}
+   * </pre>
+   */
+  public byte[] toBytes() {
+    ByteBuffer buf = ByteBuffer.allocate(10 + 8 * words.length);
+    buf.putInt(MAGIC).put((byte) (blocked ? 1 : 0)).put((byte) hashes)
+        .putInt(words.length);
+    buf.asLongBuffer().put(words);
+    return buf.array();
+  }
+
+  public static BloomFilter fromBytes(byte[] b, int off, int len) {
+    ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+    if (len < 10 || buf.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a Bloom filter.");
+    }
+    boolean blocked = buf.get() != 0;
+    int hashes = buf.get();
+    int n = buf.getInt();
+    if (hashes < 1 || hashes > MAX_HASHES || n < 1 || buf.remaining() < 8L * n
+        || (blocked && n % BLOCK_WORDS != 0)) {
+      throw new IllegalArgumentException("Malformed Bloom filter.");
+    }
+    long[] words = new long[n];
+    buf.asLongBuffer().get(words);
+    return new BloomFilter(words, hashes, blocked);
+  }
+
+  private int blockBase(long h) {
+    return (int) ((h & Long.MAX_VALUE) % (words.length / BLOCK_WORDS))
+        * BLOCK_WORDS;
+  }
+
+  private static long hashOf(Object key) {
+    if (key instanceof byte[]) {
+      byte[] b = (byte[]) key;
+      return hash(b, 0, b.length);
+    }
+    if (key instanceof Bytes) {
+      Bytes b = (Bytes) key;
+      return hash(b.array(), b.offset(), b.length());
+    }
+    if (key instanceof Long) {
+      return (Long) key;
+    }
+    throw new TypeError("Can't hash a key of "
+        + (key == null ? null : key.getClass()));
+  }
+
+  private static final double LN2 = Math.log(2);
+
+  private static final int BLOCK_WORDS = 8; // 512 BITS
+
+  private static final int MAX_HASHES = 30;
+
+  private static final long PROBE_SEED = 0x9E3779B97F4A7C15L;
+
+  private static final int MAGIC = 0x424C4F4D; // BLOM
+
+  private final long[] words;
+
+  private final int hashes;
+
+  private final boolean blocked;
+
+  private final long bitSize;
+
+}
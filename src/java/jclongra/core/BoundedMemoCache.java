@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import clojure.lang.IFn;
+import clojure.lang.RT;
+
+/**
+ * A size-, weight- and/or time-bounded Memo storage guarded by a single
+ * monitor. The computation on a miss runs outside the monitor.
+ *
+ * <p>
+ * Policies:
+ * <ul>
+ * <li>LRU - evicts the least recently used entry,</li>
+ * <li>SLRU - segmented LRU; entries hit at least twice are kept in the
+ * protected segment (80% of the capacity) and evicted last,</li>
+ * <li>TINY_LFU - W-TinyLFU; new entries land in a small LRU window (1%), and
+ * leaving the window they are admitted to the SLRU main space only if their
+ * estimated frequency beats the one of the main space victim.</li>
+ * </ul>
+ *
+ * The capacity is measured in weight units when maxWeight is given (with
+ * weight being (weigher args value), with args being the seq of the memo
+ * arguments, 1 by default), in entries otherwise.
+ * Expired entries are dropped lazily on access, from the LRU ends of the
+ * queues on every insert and by {@link #cleanUp(Memo)}.
+ */
+public final class BoundedMemoCache implements MemoCache {
+
+  public enum Policy {
+    LRU, SLRU, TINY_LFU
+  }
+
+  /**
+   * @param maxEntries
+   *          non-positive means no limit
+   * @param maxWeight
+   *          non-positive means no limit
+   * @param weigher
+   *          (weigher args value) returns a non-negative integral weight, may
+   *          be null
+   * @param expireAfterWriteNanos
+   *          non-positive means no expiration
+   * @param expireAfterAccessNanos
+   *          non-positive means no expiration
+   */
+  public BoundedMemoCache(Policy policy, long maxEntries, long maxWeight,
+      IFn weigher, long expireAfterWriteNanos, long expireAfterAccessNanos) {
+    if (policy == null) {
+      throw new IllegalArgumentException("The policy must not be null.");
+    }
+    if (maxWeight > 0 && weigher == null) {
+      throw new IllegalArgumentException("maxWeight requires a weigher.");
+    }
+    this.policy = policy;
+    this.maxEntries = maxEntries > 0 ? maxEntries : Long.MAX_VALUE;
+    this.weigher = weigher;
+    this.expireAfterWriteNanos = expireAfterWriteNanos;
+    this.expireAfterAccessNanos = expireAfterAccessNanos;
+    this.expiring = expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+
+    this.capacity = maxWeight > 0 ? maxWeight : this.maxEntries;
+    if (policy == Policy.TINY_LFU && this.capacity != Long.MAX_VALUE) {
+      this.windowCapacity = Math.max(1, this.capacity / 100);
+    }
+    else {
+      this.windowCapacity = 0;
+    }
+    long mainCapacity = this.capacity - this.windowCapacity;
+    this.protectedCapacity =
+        policy == Policy.LRU || mainCapacity == Long.MAX_VALUE ? 0
+            : mainCapacity - mainCapacity / 5;
+    this.sketch =
+        policy == Policy.TINY_LFU ? new FrequencySketch(
+            maxEntries > 0 ? maxEntries : 1024) : null;
+  }
+
+  @Override
+  public Object lookup(Object key, Memo memo) {
+    synchronized (this) {
+      if (sketch != null) {
+        sketch.increment(key);
+      }
+      Node node = map.get(key);
+      if (node != null) {
+        long now = expiring ? System.nanoTime() : 0;
+        if (isExpired(node, now)) {
+          discard(node);
+          memo.countEviction();
+        }
+        else {
+          node.accessTime = now;
+          onAccess(node);
+          memo.countCacheHit();
+          return node.value;
+        }
+      }
+    }
+
+    long start = memo.clock();
+    Object value = memo.compute(key);
+    if (!memo.admits(key, value, start)) {
+      return value;
+    }
+    put(key, value, memo);
+    return value;
+  }
+
+  @Override
+  public void put(Object key, Object value, Memo memo) {
+    long weight = weigher == null ? 1 : weigh(memo.argsOf(key), value);
+
+    synchronized (this) {
+      long now = expiring ? System.nanoTime() : 0;
+      Node node = map.get(key);
+      if (node != null) {
+        // SOME OTHER THREAD HAS BEEN FASTER
+        node.queue.weight += weight - node.weight;
+        totalWeight += weight - node.weight;
+        node.weight = weight;
+        node.value = value;
+        node.writeTime = now;
+        node.accessTime = now;
+      }
+      else {
+        node = new Node(key, value, weight, now);
+        map.put(key, node);
+        totalWeight += weight;
+        (policy == Policy.TINY_LFU ? window : probation).addLast(node);
+      }
+      if (expiring) {
+        expireHeads(now, memo);
+        // THE HEADS ARE IN THE ACCESS ORDER, SO SWEEP ALL ONCE IN A WHILE
+        if (++putsSinceSweep >= Math.max(map.size(), MIN_SWEEP_PUTS)) {
+          cleanUp(memo);
+        }
+      }
+      evict(memo);
+    }
+  }
+
+  @Override
+  public void forEachEntry(IFn f) {
+    Object[] entries;
+    synchronized (this) {
+      entries = map.values().toArray();
+    }
+    for (Object e : entries) {
+      Node node = (Node) e;
+      f.invoke(node.key, node.value);
+    }
+  }
+
+  @Override
+  public synchronized boolean remove(Object key) {
+    Node node = map.get(key);
+    if (node == null) {
+      return false;
+    }
+    discard(node);
+    return true;
+  }
+
+  @Override
+  public synchronized void clear() {
+    map.clear();
+    window.clear();
+    probation.clear();
+    protect.clear();
+    totalWeight = 0;
+  }
+
+  @Override
+  public synchronized int size() {
+    return map.size();
+  }
+
+  public synchronized long weight() {
+    return totalWeight;
+  }
+
+  /**
+   * Removes all the expired entries, counting them as the evictions of the
+   * memo. Returns the number of entries removed. Also called from put every
+   * max(size, 64) puts, so that the entries expired after write get dropped
+   * even when the queue heads are fresh.
+   */
+  public synchronized int cleanUp(Memo memo) {
+    putsSinceSweep = 0;
+    if (!expiring) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    int n = 0;
+    for (Queue q : new Queue[] { window, probation, protect }) {
+      Node node = q.head;
+      while (node != null) {
+        Node next = node.next;
+        if (isExpired(node, now)) {
+          discard(node);
+          memo.countEviction();
+          n++;
+        }
+        node = next;
+      }
+    }
+    return n;
+  }
+
+  private long weigh(Object args, Object value) {
+    long w = RT.longCast(weigher.invoke(args, value));
+    if (w < 0) {
+      throw new IllegalArgumentException("Negative weight " + w + " for "
+          + args);
+    }
+    return w;
+  }
+
+  private boolean isExpired(Node node, long now) {
+    return expiring
+        && (expireAfterWriteNanos > 0
+            && now - node.writeTime >= expireAfterWriteNanos || expireAfterAccessNanos > 0
+            && now - node.accessTime >= expireAfterAccessNanos);
+  }
+
+  private void expireHeads(long now, Memo memo) {
+    for (Queue q : new Queue[] { window, probation, protect }) {
+      while (q.head != null && isExpired(q.head, now)) {
+        discard(q.head);
+        memo.countEviction();
+      }
+    }
+  }
+
+  private void onAccess(Node node) {
+    if (policy == Policy.LRU || node.queue != probation) {
+      node.queue.moveToLast(node);
+      return;
+    }
+    // PROMOTE FROM probation TO protect, DEMOTE THE OVERFLOW BACK
+    probation.remove(node);
+    protect.addLast(node);
+    while (protect.weight > protectedCapacity && protect.head != node) {
+      Node demoted = protect.head;
+      protect.remove(demoted);
+      probation.addLast(demoted);
+    }
+  }
+
+  private void evict(Memo memo) {
+    if (policy == Policy.TINY_LFU) {
+      while (window.weight > windowCapacity && window.head != null) {
+        Node candidate = window.head;
+        window.remove(candidate);
+        probation.addLast(candidate);
+        admitOrReject(candidate, memo);
+      }
+    }
+    while (totalWeight > capacity || map.size() > maxEntries) {
+      Node victim = probation.head != null ? probation.head : protect.head;
+      if (victim == null) {
+        victim = window.head;
+      }
+      discard(victim);
+      memo.countEviction();
+    }
+  }
+
+  private void admitOrReject(Node candidate, Memo memo) {
+    while (totalWeight > capacity || map.size() > maxEntries) {
+      Node victim = probation.head != null ? probation.head : protect.head;
+      if (victim == candidate) {
+        victim = candidate.next != null ? candidate.next : protect.head;
+      }
+      if (victim == null
+          || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        discard(candidate);
+        memo.countEviction();
+        return;
+      }
+      discard(victim);
+      memo.countEviction();
+    }
+  }
+
+  private void discard(Node node) {
+    node.queue.remove(node);
+    map.remove(node.key);
+    totalWeight -= node.weight;
+  }
+
+  private static final class Node {
+
+    final Object key;
+
+    Object value;
+
+    long weight;
+
+    long writeTime;
+
+    long accessTime;
+
+    Queue queue;
+
+    Node prev;
+
+    Node next;
+
+    Node(Object key, Object value, long weight, long now) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = now;
+      this.accessTime = now;
+    }
+
+  }
+
+  private static final class Queue {
+
+    Node head;
+
+    Node tail;
+
+    long weight;
+
+    void addLast(Node node) {
+      node.queue = this;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      }
+      else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      }
+      else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      }
+      else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      node.queue = null;
+      weight -= node.weight;
+    }
+
+    void moveToLast(Node node) {
+      if (tail != node) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+      weight = 0;
+    }
+
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters (4 rows) with periodic halving, so
+   * that the frequencies reflect the recent history.
+   */
+  private static final class FrequencySketch {
+
+    FrequencySketch(long expectedEntries) {
+      int width =
+          Integer.highestOneBit((int) Math.min(Math.max(expectedEntries, 64),
+              1 << 24) - 1) << 1;
+      this.table = new long[width];
+      this.mask = width - 1;
+      this.sampleSize = 10L * width;
+    }
+
+    void increment(Object key) {
+      int h = spread(key);
+      boolean added = false;
+      for (int row = 0; row < 4; row++) {
+        int index = indexOf(h, row);
+        int shift = counterShift(h, row);
+        if (((table[index] >>> shift) & 0xFL) != 15) {
+          table[index] += 1L << shift;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        halve();
+      }
+    }
+
+    int frequency(Object key) {
+      int h = spread(key);
+      int freq = 15;
+      for (int row = 0; row < 4; row++) {
+        long c = (table[indexOf(h, row)] >>> counterShift(h, row)) & 0xFL;
+        freq = Math.min(freq, (int) c);
+      }
+      return freq;
+    }
+
+    private int indexOf(int h, int row) {
+      long hash = (h + SEEDS[row]) * SEEDS[row];
+      hash += hash >>> 32;
+      return (int) hash & mask;
+    }
+
+    /**
+     * Every long holds 16 counters; each row uses a different quarter of them.
+     */
+    private static int counterShift(int h, int row) {
+      return ((row << 2) + ((h >>> (row << 3)) & 3)) << 2;
+    }
+
+    private void halve() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+      }
+      additions /= 2;
+    }
+
+    private static int spread(Object key) {
+      int h = key == null ? 0 : key.hashCode();
+      h *= 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+        0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    private final long[] table;
+
+    private final int mask;
+
+    private final long sampleSize;
+
+    private long additions;
+
+  }
+
+  private static final int MIN_SWEEP_PUTS = 64;
+
+  private final Policy policy;
+
+  private final long maxEntries;
+
+  private final IFn weigher;
+
+  private final long expireAfterWriteNanos;
+
+  private final long expireAfterAccessNanos;
+
+  private final boolean expiring;
+
+  private final long capacity;
+
+  private final long windowCapacity;
+
+  private final long protectedCapacity;
+
+  private final FrequencySketch sketch;
+
+  private final Map<Object, Node> map = new HashMap<Object, Node>();
+
+  private final Queue window = new Queue();
+
+  private final Queue probation = new Queue();
+
+  private final Queue protect = new Queue();
+
+  private int putsSinceSweep;
+
+  private long totalWeight;
+
+}
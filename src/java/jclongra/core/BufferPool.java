@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.io.Closeable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jclongra.StateError;
+
+/**
+ * A pool of ByteBuffers (heap or direct) in power of 2 size classes, from 64
+ * bytes to 1 MB. Every thread keeps a magazine (a small stack) of buffers per
+ * class, so the acquire/release pairs of one thread take no locks. The full
+ * and empty magazines are exchanged with a shared, bounded depot. Requests
+ * bigger than the biggest class get unpooled buffers.
+ *
+ * <p>
+ * A released buffer must not be used anymore, nor released again. The
+ * buffers not released are simply collected by the GC. The pool keeps weak
+ * tags of the buffers it allocated, so it takes back its own buffers only.
+ * The magazines of a thread are dropped by trimThread() (e.g. before the
+ * thread goes idle for long), the ones of all threads by trim() (lazily,
+ * on their next acquire or release).
+ */
+public final class BufferPool {
+
+  public static final BufferPool HEAP = new BufferPool(false);
+
+  public static final BufferPool DIRECT = new BufferPool(true);
+
+  public BufferPool(boolean direct) {
+    this.direct = direct;
+    this.depots = new Depot[CLASSES];
+    for (int c = 0; c < CLASSES; c++) {
+      depots[c] = new Depot(c);
+    }
+    this.magazines = new ThreadLocal<Magazines>() {
+      @Override
+      protected Magazines initialValue() {
+        return new Magazines(epoch);
+      }
+    };
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Returns a cleared buffer with the limit set to size and the capacity of
+   * the size class (possibly bigger than size), in the big-endian order.
+   */
+  public ByteBuffer acquire(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Illegal size " + size);
+    }
+    int c = sizeClass(size);
+    if (c >= CLASSES) {
+      return allocate(size);
+    }
+    Magazine m = magazines()[c];
+    if (m.size == 0) {
+      depots[c].exchangeEmpty(m);
+    }
+    ByteBuffer b = m.size != 0 ? m.items[--m.size] : allocateTagged(c);
+    m.items[m.size] = null;
+    b.clear();
+    b.limit(size);
+    b.order(ByteOrder.BIG_ENDIAN);
+    return b;
+  }
+
+  /**
+   * Returns the buffer to the pool. The buffers not acquired from this pool
+   * are ignored.
+   */
+  public void release(ByteBuffer b) {
+    int cap = b.capacity();
+    if (b.isDirect() != direct || cap < MIN_SIZE
+        || Integer.bitCount(cap) != 1 || sizeClass(cap) >= CLASSES
+        || !tags.containsKey(new Tag(b, null))) {
+      return;
+    }
+    int c = sizeClass(cap);
+    Magazine m = magazines()[c];
+    if (m.size == m.items.length) {
+      depots[c].exchangeFull(m);
+    }
+    m.items[m.size++] = b;
+  }
+
+  /**
+   * Returns a Closeable holding an acquired buffer that is released on
+   * close(), e.g. by a Doclean. Closing more than once does nothing.
+   */
+  public Lease lease(int size) {
+    return new Lease(this, acquire(size));
+  }
+
+  public static final class Lease implements Closeable {
+
+    private final BufferPool pool;
+
+    private ByteBuffer buffer;
+
+    Lease(BufferPool pool, ByteBuffer buffer) {
+      this.pool = pool;
+      this.buffer = buffer;
+    }
+
+    public ByteBuffer buffer() {
+      if (buffer == null) {
+        throw new StateError("The buffer lease is closed.");
+      }
+      return buffer;
+    }
+
+    @Override
+    public void close() {
+      if (buffer != null) {
+        pool.release(buffer);
+        buffer = null;
+      }
+    }
+
+  }
+
+  /**
+   * Drops the buffers kept by the calling thread.
+   */
+  public void trimThread() {
+    magazines.remove();
+  }
+
+  /**
+   * Drops the buffers kept in the depot. Every thread drops its own ones on
+   * its next acquire or release.
+   */
+  public void trim() {
+    epoch++;
+    for (Depot d : depots) {
+      d.clear();
+    }
+  }
+
+  private Magazine[] magazines() {
+    Magazines ms = magazines.get();
+    int e = epoch;
+    if (ms.epoch != e) {
+      ms = new Magazines(e);
+      magazines.set(ms);
+    }
+    return ms.classes;
+  }
+
+  private ByteBuffer allocateTagged(int c) {
+    for (Reference<?> r; (r = dead.poll()) != null;) {
+      tags.remove(r);
+    }
+    ByteBuffer b = allocate(classSize(c));
+    tags.put(new Tag(b, dead), Boolean.TRUE);
+    return b;
+  }
+
+  private static int sizeClass(int size) {
+    if (size <= MIN_SIZE) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+  }
+
+  private static int classSize(int c) {
+    return MIN_SIZE << c;
+  }
+
+  private static int magazineSize(int c) {
+    return Math.max(2, Math.min(MAX_MAGAZINE, MAGAZINE_BYTES / classSize(c)));
+  }
+
+  private ByteBuffer allocate(int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer
+        .allocate(capacity);
+  }
+
+  /**
+   * The magazines of a thread, for all the size classes.
+   */
+  private static final class Magazines {
+
+    final Magazine[] classes = new Magazine[CLASSES];
+
+    final int epoch;
+
+    Magazines(int epoch) {
+      this.epoch = epoch;
+      for (int c = 0; c < CLASSES; c++) {
+        classes[c] = new Magazine(magazineSize(c));
+      }
+    }
+
+  }
+
+  /**
+   * A weak, identity-based tag of a buffer allocated by the pool.
+   */
+  private static final class Tag extends WeakReference<ByteBuffer> {
+
+    private final int hash;
+
+    Tag(ByteBuffer b, ReferenceQueue<ByteBuffer> queue) {
+      super(b, queue);
+      this.hash = System.identityHashCode(b);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Tag)) {
+        return false;
+      }
+      ByteBuffer b = get();
+      return b != null && b == ((Tag) obj).get();
+    }
+
+  }
+
+  private static final class Magazine {
+
+    ByteBuffer[] items;
+
+    int size;
+
+    Magazine(int capacity) {
+      this.items = new ByteBuffer[capacity];
+    }
+
+  }
+
+  /**
+   * The shared full and empty magazines of a size class.
+   */
+  private static final class Depot {
+
+    private final ArrayDeque<ByteBuffer[]> full = new ArrayDeque<>();
+
+    private final ArrayDeque<ByteBuffer[]> empty = new ArrayDeque<>();
+
+    private final int maxFull;
+
+    Depot(int c) {
+      this.maxFull =
+          Math.max(1, DEPOT_BYTES / (classSize(c) * magazineSize(c)));
+    }
+
+    /**
+     * Replaces the empty magazine m with a full one, when there's any.
+     */
+    synchronized void exchangeEmpty(Magazine m) {
+      ByteBuffer[] items = full.pollFirst();
+      if (items != null) {
+        if (empty.size() < maxFull) {
+          empty.addFirst(m.items);
+        }
+        m.items = items;
+        m.size = items.length;
+      }
+    }
+
+    /**
+     * Replaces the full magazine m with an empty one. Drops the buffers of m
+     * when the depot is full.
+     */
+    synchronized void exchangeFull(Magazine m) {
+      ByteBuffer[] items = m.items;
+      if (full.size() < maxFull) {
+        full.addFirst(items);
+        ByteBuffer[] e = empty.pollFirst();
+        m.items = e != null ? e : new ByteBuffer[items.length];
+      }
+      else {
+        Arrays.fill(items, null);
+      }
+      m.size = 0;
+    }
+
+    synchronized void clear() {
+      full.clear();
+      empty.clear();
+    }
+
+  }
+
+  private static final int MIN_SHIFT = 6;
+
+  private static final int MIN_SIZE = 1 << MIN_SHIFT; // 64 B
+
+  private static final int CLASSES = 15; // UP TO 1 MB
+
+  private static final int MAX_MAGAZINE = 32;
+
+  private static final int MAGAZINE_BYTES = 1 << 18;
+
+  private static final int DEPOT_BYTES = 1 << 24;
+
+  private final boolean direct;
+
+  private final Depot[] depots;
+
+  private final ThreadLocal<Magazines> magazines;
+
+  private final ConcurrentHashMap<Tag, Boolean> tags =
+      new ConcurrentHashMap<>();
+
+  private final ReferenceQueue<ByteBuffer> dead = new ReferenceQueue<>();
+
+  private volatile int epoch;
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.io.Closeable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A reusable output for the bytes writers (@see bytes-writer). Wraps a
+ * ByteBuffer written at its position. A growable sink replaces the buffer with
+ * a twice bigger one when needed, a fixed one throws BufferOverflowException.
+ * A pooled sink takes its buffers from a BufferPool and returns them on
+ * growth and on close().
+ */
+public final class ByteSink implements Closeable {
+
+  /**
+   * Wraps the buffer, switching it to the big-endian order of to-bytes.
+   */
+  public static ByteSink wrap(ByteBuffer buf) {
+    return new ByteSink(buf.order(ByteOrder.BIG_ENDIAN), false, null);
+  }
+
+  public static ByteSink growable(int initialCapacity, boolean direct) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException("Illegal initialCapacity "
+          + initialCapacity);
+    }
+    return new ByteSink(allocate(initialCapacity, direct), true, null);
+  }
+
+  public static ByteSink pooled(BufferPool pool, int initialCapacity) {
+    ByteBuffer buf = pool.acquire(initialCapacity);
+    buf.limit(buf.capacity());
+    return new ByteSink(buf, true, pool);
+  }
+
+  /**
+   * Returns the buffer positioned at the current write offset. The writers
+   * must call ensure(n) before putting n bytes.
+   */
+  public ByteBuffer buffer() {
+    return buf;
+  }
+
+  /**
+   * Makes room for n more bytes and returns the buffer.
+   */
+  public ByteBuffer ensure(int n) {
+    if (buf.remaining() >= n) {
+      return buf;
+    }
+    if (!growable) {
+      throw new BufferOverflowException();
+    }
+    long needed = (long) buf.position() + n;
+    long capacity = Math.max((long) buf.capacity() << 1, needed);
+    if (capacity > Integer.MAX_VALUE) {
+      if (needed > Integer.MAX_VALUE) {
+        throw new BufferOverflowException();
+      }
+      capacity = Integer.MAX_VALUE;
+    }
+    ByteBuffer bigger;
+    if (pool != null) {
+      bigger = pool.acquire((int) capacity);
+      bigger.limit(bigger.capacity());
+    }
+    else {
+      bigger = allocate((int) capacity, buf.isDirect());
+    }
+    bigger.order(buf.order());
+    buf.flip();
+    bigger.put(buf);
+    if (pool != null) {
+      pool.release(buf);
+    }
+    buf = bigger;
+    return buf;
+  }
+
+  public ByteSink put(byte[] b, int off, int len) {
+    ensure(len).put(b, off, len);
+    return this;
+  }
+
+  public int position() {
+    return buf.position();
+  }
+
+  public ByteSink position(int position) {
+    buf.position(position);
+    return this;
+  }
+
+  /**
+   * Returns a copy of the bytes written so far.
+   */
+  public byte[] toByteArray() {
+    byte[] result = new byte[buf.position()];
+    ByteBuffer b = buf.duplicate();
+    b.flip();
+    b.get(result);
+    return result;
+  }
+
+  /**
+   * Makes the sink reusable, keeping the buffer.
+   */
+  public ByteSink clear() {
+    buf.clear();
+    return this;
+  }
+
+  /**
+   * Returns the buffer of a pooled sink to the pool. The sink must not be
+   * used afterwards. Does nothing for the other sinks.
+   */
+  @Override
+  public void close() {
+    if (pool != null && buf != null) {
+      pool.release(buf);
+      buf = null;
+    }
+  }
+
+  private ByteSink(ByteBuffer buf, boolean growable, BufferPool pool) {
+    this.buf = buf;
+    this.growable = growable;
+    this.pool = pool;
+  }
+
+  private static ByteBuffer allocate(int capacity, boolean direct) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer
+        .allocate(capacity);
+  }
+
+  private final boolean growable;
+
+  private final BufferPool pool;
+
+  private ByteBuffer buf;
+
+}
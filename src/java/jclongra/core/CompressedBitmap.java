@@ -0,0 +1,919 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import jclongra.StateError;
+
+/**
+ * A compressed set of ints (taken as unsigned), Roaring-style. The values are
+ * split by their high 16 bits into chunks, each kept in a container fit for
+ * its density: a sorted array of the low 16 bits (up to 4096 values), a
+ * bitmap of 65536 bits, or a list of runs (@see #runOptimize()).
+ *
+ * <p>
+ * The runs are converted to arrays or bitmaps for the updates and for the
+ * binary operations, so call runOptimize() when done modifying. Not
+ * thread-safe.
+ */
+public final class CompressedBitmap {
+
+  public CompressedBitmap() {
+    this(new char[4], new Container[4], 0);
+  }
+
+  public static CompressedBitmap of(int... values) {
+    CompressedBitmap result = new CompressedBitmap();
+    for (int v : values) {
+      result.add(v);
+    }
+    return result;
+  }
+
+  /**
+   * Converts the bitset, a chunk of 1024 words at a time.
+   */
+  public static CompressedBitmap fromBitSet(BitSet bits) {
+    long[] words = bits.toLongArray();
+    int chunks = (words.length + BitmapContainer.WORDS - 1)
+        / BitmapContainer.WORDS;
+    CompressedBitmap result =
+        new CompressedBitmap(new char[Math.max(chunks, 1)],
+            new Container[Math.max(chunks, 1)], 0);
+    for (int k = 0; k < chunks; k++) {
+      BitmapContainer c = new BitmapContainer();
+      int from = k * BitmapContainer.WORDS;
+      int n = Math.min(BitmapContainer.WORDS, words.length - from);
+      System.arraycopy(words, from, c.words, 0, n);
+      c.card = c.countBits();
+      Container e = c.shrink();
+      if (e != null) {
+        result.append((char) k, e);
+      }
+    }
+    return result;
+  }
+
+  public BitSet toBitSet() {
+    if (size == 0) {
+      return new BitSet();
+    }
+    if (keys[size - 1] >= 0x8000) {
+      throw new StateError("A BitSet can't hold the values >= 2^31");
+    }
+    long[] words = new long[(keys[size - 1] + 1) * BitmapContainer.WORDS];
+    for (int i = 0; i < size; i++) {
+      BitmapContainer c = containers[i].toBitmap();
+      System.arraycopy(c.words, 0, words, keys[i] * BitmapContainer.WORDS,
+          BitmapContainer.WORDS);
+    }
+    return BitSet.valueOf(words);
+  }
+
+  public void add(int x) {
+    char high = (char) (x >>> 16);
+    int i = indexOf(high);
+    if (i >= 0) {
+      containers[i] = containers[i].add((char) x);
+    }
+    else {
+      insert(-i - 1, high, new ArrayContainer().add((char) x));
+    }
+  }
+
+  public void remove(int x) {
+    int i = indexOf((char) (x >>> 16));
+    if (i < 0) {
+      return;
+    }
+    Container c = containers[i].remove((char) x);
+    if (c == null) {
+      delete(i);
+    }
+    else {
+      containers[i] = c;
+    }
+  }
+
+  public boolean contains(int x) {
+    int i = indexOf((char) (x >>> 16));
+    return i >= 0 && containers[i].contains((char) x);
+  }
+
+  public long cardinality() {
+    long n = 0;
+    for (int i = 0; i < size; i++) {
+      n += containers[i].cardinality();
+    }
+    return n;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public CompressedBitmap and(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      }
+      else if (keys[i] > other.keys[j]) {
+        j++;
+      }
+      else {
+        Container c = Container.and(containers[i], other.containers[j]);
+        if (c != null) {
+          result.append(keys[i], c);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  public CompressedBitmap or(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      }
+      else if (i == size || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      }
+      else {
+        result.append(keys[i],
+            Container.or(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  public CompressedBitmap andNot(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap();
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      Container c =
+          j < other.size && other.keys[j] == keys[i] ? Container.andNot(
+              containers[i], other.containers[j]) : containers[i].copy();
+      if (c != null) {
+        result.append(keys[i], c);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Turns every container into the smallest of the array, bitmap and runs.
+   * Returns this.
+   */
+  public CompressedBitmap runOptimize() {
+    for (int i = 0; i < size; i++) {
+      containers[i] = containers[i].optimize();
+    }
+    return this;
+  }
+
+  /**
+   * Returns the values in the (unsigned) ascending order.
+   */
+  public int[] toArray() {
+    long n = cardinality();
+    if (n > Integer.MAX_VALUE) {
+      throw new StateError("Too many values " + n);
+    }
+    int[] result = new int[(int) n];
+    int pos = 0;
+    for (int i = 0; i < size; i++) {
+      pos = containers[i].fill(keys[i] << 16, result, pos);
+    }
+    return result;
+  }
+
+  // SERIALIZATION
+
+  /**
+   * <pre>
+   * bitmap    := MAGIC:int count:int container{count}
+   * container := key:char type:byte (array | bitmap | runs)
+   * array     := card:int char{card}
+   * bitmap    := long{1024}
+   * runs      := n:int (start:char lengthMinus1:char){n}
+   * </pre>
+   */
+  public byte[] toBytes() {
+    int n = 8;
+    for (int i = 0; i < size; i++) {
+      n += 3 + containers[i].serializedSize();
+    }
+    ByteBuffer buf = ByteBuffer.allocate(n);
+    buf.putInt(MAGIC).putInt(size);
+    for (int i = 0; i < size; i++) {
+      buf.putChar(keys[i]);
+      containers[i].write(buf);
+    }
+    return buf.array();
+  }
+
+  public static CompressedBitmap fromBytes(byte[] b, int off, int len) {
+    ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+    if (buf.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a compressed bitmap.");
+    }
+    int n = buf.getInt();
+    CompressedBitmap result =
+        new CompressedBitmap(new char[Math.max(n, 1)],
+            new Container[Math.max(n, 1)], 0);
+    for (int i = 0; i < n; i++) {
+      char key = buf.getChar();
+      result.append(key, Container.read(buf));
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CompressedBitmap)) {
+      return false;
+    }
+    CompressedBitmap other = (CompressedBitmap) obj;
+    return size == other.size
+        && Arrays.equals(Arrays.copyOf(keys, size),
+            Arrays.copyOf(other.keys, other.size))
+        && Arrays.equals(toArray(), other.toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toArray());
+  }
+
+  @Override
+  public String toString() {
+    return "CompressedBitmap[cardinality=" + cardinality() + ", containers="
+        + size + "]";
+  }
+
+  private CompressedBitmap(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  private int indexOf(char key) {
+    // THE LAST CONTAINER IS THE USUAL TARGET OF THE ASCENDING UPDATES
+    if (size > 0 && keys[size - 1] == key) {
+      return size - 1;
+    }
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  private void append(char key, Container c) {
+    insert(size, key, c);
+  }
+
+  private void insert(int i, char key, Container c) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size << 1);
+      containers = Arrays.copyOf(containers, size << 1);
+    }
+    System.arraycopy(keys, i, keys, i + 1, size - i);
+    System.arraycopy(containers, i, containers, i + 1, size - i);
+    keys[i] = key;
+    containers[i] = c;
+    size++;
+  }
+
+  private void delete(int i) {
+    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+    System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+    containers[--size] = null;
+  }
+
+  // CONTAINERS
+
+  private static abstract class Container {
+
+    /**
+     * Returns the container holding the result, possibly this one (modified)
+     * or a new one of another kind.
+     */
+    abstract Container add(char x);
+
+    /**
+     * Like add(char). Returns null for the empty result.
+     */
+    abstract Container remove(char x);
+
+    abstract boolean contains(char x);
+
+    abstract int cardinality();
+
+    abstract Container copy();
+
+    abstract BitmapContainer toBitmap();
+
+    /**
+     * Puts (high | value) for all the values into result from pos on, returns
+     * the next pos.
+     */
+    abstract int fill(int high, int[] result, int pos);
+
+    abstract int runs();
+
+    abstract int serializedSize();
+
+    abstract void write(ByteBuffer buf);
+
+    /**
+     * Returns the array or bitmap equivalent of this container.
+     */
+    Container plain() {
+      return this;
+    }
+
+    Container optimize() {
+      Container c = plain();
+      int card = c.cardinality();
+      int runs = c.runs();
+      int asRuns = 4 + 4 * runs;
+      int asArray = 4 + 2 * card;
+      int asBitmap = 8 * BitmapContainer.WORDS;
+      if (asRuns < Math.min(asArray, asBitmap)) {
+        return RunContainer.of(c);
+      }
+      return card <= ArrayContainer.MAX ? c.toBitmap().toArrayContainer()
+          : c.toBitmap();
+    }
+
+    static Container and(Container a, Container b) {
+      a = a.plain();
+      b = b.plain();
+      if (a instanceof ArrayContainer) {
+        return ((ArrayContainer) a).filter(b, true);
+      }
+      if (b instanceof ArrayContainer) {
+        return ((ArrayContainer) b).filter(a, true);
+      }
+      BitmapContainer x = (BitmapContainer) a;
+      BitmapContainer y = (BitmapContainer) b;
+      BitmapContainer result = new BitmapContainer();
+      for (int i = 0; i < BitmapContainer.WORDS; i++) {
+        result.words[i] = x.words[i] & y.words[i];
+      }
+      result.card = result.countBits();
+      return result.shrink();
+    }
+
+    static Container or(Container a, Container b) {
+      a = a.plain();
+      b = b.plain();
+      if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+        return ArrayContainer.union((ArrayContainer) a, (ArrayContainer) b);
+      }
+      BitmapContainer result = a instanceof BitmapContainer ? (BitmapContainer) a
+          .copy() : (BitmapContainer) b.copy();
+      Container other = a instanceof BitmapContainer ? b : a;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer arr = (ArrayContainer) other;
+        for (int i = 0; i < arr.card; i++) {
+          result.add(arr.content[i]);
+        }
+        return result;
+      }
+      long[] words = ((BitmapContainer) other).words;
+      for (int i = 0; i < BitmapContainer.WORDS; i++) {
+        result.words[i] |= words[i];
+      }
+      result.card = result.countBits();
+      return result;
+    }
+
+    static Container andNot(Container a, Container b) {
+      a = a.plain();
+      b = b.plain();
+      if (a instanceof ArrayContainer) {
+        return ((ArrayContainer) a).filter(b, false);
+      }
+      BitmapContainer result = (BitmapContainer) a.copy();
+      if (b instanceof ArrayContainer) {
+        ArrayContainer arr = (ArrayContainer) b;
+        for (int i = 0; i < arr.card; i++) {
+          char x = arr.content[i];
+          long bit = 1L << x;
+          if ((result.words[x >>> 6] & bit) != 0) {
+            result.words[x >>> 6] &= ~bit;
+            result.card--;
+          }
+        }
+      }
+      else {
+        long[] words = ((BitmapContainer) b).words;
+        for (int i = 0; i < BitmapContainer.WORDS; i++) {
+          result.words[i] &= ~words[i];
+        }
+        result.card = result.countBits();
+      }
+      return result.shrink();
+    }
+
+    static Container read(ByteBuffer buf) {
+      byte type = buf.get();
+      switch (type) {
+      case ArrayContainer.TYPE: {
+        ArrayContainer c = new ArrayContainer(buf.getInt());
+        c.card = c.content.length;
+        buf.asCharBuffer().get(c.content);
+        buf.position(buf.position() + 2 * c.card);
+        return c;
+      }
+      case BitmapContainer.TYPE: {
+        BitmapContainer c = new BitmapContainer();
+        buf.asLongBuffer().get(c.words);
+        buf.position(buf.position() + 8 * BitmapContainer.WORDS);
+        c.card = c.countBits();
+        return c;
+      }
+      case RunContainer.TYPE: {
+        RunContainer c = new RunContainer(new char[2 * buf.getInt()]);
+        buf.asCharBuffer().get(c.runs);
+        buf.position(buf.position() + 2 * c.runs.length);
+        return c;
+      }
+      default:
+        throw new IllegalArgumentException("Illegal container type " + type);
+      }
+    }
+
+  }
+
+  private static final class ArrayContainer extends Container {
+
+    static final int MAX = 4096;
+
+    static final byte TYPE = 0;
+
+    char[] content;
+
+    int card;
+
+    ArrayContainer() {
+      this(4);
+    }
+
+    ArrayContainer(int capacity) {
+      this.content = new char[capacity];
+    }
+
+    @Override
+    Container add(char x) {
+      int i = Arrays.binarySearch(content, 0, card, x);
+      if (i >= 0) {
+        return this;
+      }
+      if (card == MAX) {
+        return toBitmap().add(x);
+      }
+      i = -i - 1;
+      if (card == content.length) {
+        content = Arrays.copyOf(content, Math.min(card << 1, MAX));
+      }
+      System.arraycopy(content, i, content, i + 1, card - i);
+      content[i] = x;
+      card++;
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      int i = Arrays.binarySearch(content, 0, card, x);
+      if (i >= 0) {
+        System.arraycopy(content, i + 1, content, i, card - i - 1);
+        card--;
+      }
+      return card == 0 ? null : this;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return Arrays.binarySearch(content, 0, card, x) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return card;
+    }
+
+    @Override
+    Container copy() {
+      ArrayContainer c = new ArrayContainer(Math.max(card, 1));
+      System.arraycopy(content, 0, c.content, 0, card);
+      c.card = card;
+      return c;
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      BitmapContainer c = new BitmapContainer();
+      for (int i = 0; i < card; i++) {
+        c.words[content[i] >>> 6] |= 1L << content[i];
+      }
+      c.card = card;
+      return c;
+    }
+
+    @Override
+    int fill(int high, int[] result, int pos) {
+      for (int i = 0; i < card; i++) {
+        result[pos++] = high | content[i];
+      }
+      return pos;
+    }
+
+    @Override
+    int runs() {
+      int n = card == 0 ? 0 : 1;
+      for (int i = 1; i < card; i++) {
+        if (content[i] != content[i - 1] + 1) {
+          n++;
+        }
+      }
+      return n;
+    }
+
+    @Override
+    int serializedSize() {
+      return 4 + 2 * card;
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+      buf.put(TYPE).putInt(card);
+      for (int i = 0; i < card; i++) {
+        buf.putChar(content[i]);
+      }
+    }
+
+    /**
+     * Returns the values of this contained (keep true) or not contained (keep
+     * false) in other, null if none.
+     */
+    Container filter(Container other, boolean keep) {
+      ArrayContainer result = new ArrayContainer(Math.max(card, 1));
+      int n = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer o = (ArrayContainer) other;
+        int j = 0;
+        for (int i = 0; i < card; i++) {
+          char x = content[i];
+          while (j < o.card && o.content[j] < x) {
+            j++;
+          }
+          if ((j < o.card && o.content[j] == x) == keep) {
+            result.content[n++] = x;
+          }
+        }
+      }
+      else {
+        for (int i = 0; i < card; i++) {
+          if (other.contains(content[i]) == keep) {
+            result.content[n++] = content[i];
+          }
+        }
+      }
+      result.card = n;
+      return n == 0 ? null : result;
+    }
+
+    static Container union(ArrayContainer a, ArrayContainer b) {
+      if (a.card + b.card > MAX) {
+        BitmapContainer result = a.toBitmap();
+        for (int i = 0; i < b.card; i++) {
+          result.add(b.content[i]);
+        }
+        return result.shrink();
+      }
+      ArrayContainer result = new ArrayContainer(a.card + b.card);
+      int i = 0;
+      int j = 0;
+      int n = 0;
+      while (i < a.card && j < b.card) {
+        char x = a.content[i];
+        char y = b.content[j];
+        if (x < y) {
+          result.content[n++] = x;
+          i++;
+        }
+        else if (x > y) {
+          result.content[n++] = y;
+          j++;
+        }
+        else {
+          result.content[n++] = x;
+          i++;
+          j++;
+        }
+      }
+      while (i < a.card) {
+        result.content[n++] = a.content[i++];
+      }
+      while (j < b.card) {
+        result.content[n++] = b.content[j++];
+      }
+      result.card = n;
+      return result;
+    }
+
+  }
+
+  private static final class BitmapContainer extends Container {
+
+    static final int WORDS = 1024;
+
+    static final byte TYPE = 1;
+
+    final long[] words = new long[WORDS];
+
+    int card;
+
+    @Override
+    Container add(char x) {
+      long bit = 1L << x;
+      if ((words[x >>> 6] & bit) == 0) {
+        words[x >>> 6] |= bit;
+        card++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      long bit = 1L << x;
+      if ((words[x >>> 6] & bit) != 0) {
+        words[x >>> 6] &= ~bit;
+        card--;
+      }
+      return shrink();
+    }
+
+    @Override
+    boolean contains(char x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return card;
+    }
+
+    @Override
+    Container copy() {
+      BitmapContainer c = new BitmapContainer();
+      System.arraycopy(words, 0, c.words, 0, WORDS);
+      c.card = card;
+      return c;
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return this;
+    }
+
+    @Override
+    int fill(int high, int[] result, int pos) {
+      for (int i = 0; i < WORDS; i++) {
+        long w = words[i];
+        while (w != 0) {
+          result[pos++] = high | (i << 6) | Long.numberOfTrailingZeros(w);
+          w &= w - 1;
+        }
+      }
+      return pos;
+    }
+
+    @Override
+    int runs() {
+      // A RUN STARTS AT EVERY 1 PRECEDED BY A 0
+      int n = 0;
+      long prev = 0;
+      for (int i = 0; i < WORDS; i++) {
+        long w = words[i];
+        n += Long.bitCount(w & ~((w << 1) | (prev >>> 63)));
+        prev = w;
+      }
+      return n;
+    }
+
+    @Override
+    int serializedSize() {
+      return 8 * WORDS;
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+      buf.put(TYPE);
+      for (int i = 0; i < WORDS; i++) {
+        buf.putLong(words[i]);
+      }
+    }
+
+    int countBits() {
+      int n = 0;
+      for (int i = 0; i < WORDS; i++) {
+        n += Long.bitCount(words[i]);
+      }
+      return n;
+    }
+
+    /**
+     * Returns an array container for the small cardinalities, null for 0.
+     */
+    Container shrink() {
+      if (card == 0) {
+        return null;
+      }
+      return card <= ArrayContainer.MAX ? toArrayContainer() : this;
+    }
+
+    ArrayContainer toArrayContainer() {
+      ArrayContainer c = new ArrayContainer(Math.max(card, 1));
+      int n = 0;
+      for (int i = 0; i < WORDS; i++) {
+        long w = words[i];
+        while (w != 0) {
+          c.content[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(w));
+          w &= w - 1;
+        }
+      }
+      c.card = n;
+      return c;
+    }
+
+  }
+
+  private static final class RunContainer extends Container {
+
+    static final byte TYPE = 2;
+
+    /**
+     * (start, length - 1) pairs, ascending
+     */
+    final char[] runs;
+
+    RunContainer(char[] runs) {
+      this.runs = runs;
+    }
+
+    static RunContainer of(Container c) {
+      int[] values = new int[c.cardinality()];
+      c.fill(0, values, 0);
+      char[] runs = new char[2 * c.runs()];
+      int n = 0;
+      for (int i = 0; i < values.length; i++) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          runs[n] = (char) values[i];
+          n += 2;
+        }
+        else {
+          runs[n - 1]++;
+        }
+      }
+      return new RunContainer(runs);
+    }
+
+    @Override
+    Container plain() {
+      int card = cardinality();
+      if (card > ArrayContainer.MAX) {
+        BitmapContainer c = new BitmapContainer();
+        for (int i = 0; i < runs.length; i += 2) {
+          int start = runs[i];
+          int end = start + runs[i + 1]; // INCLUSIVE
+          for (int x = start; x <= end; x++) {
+            c.words[x >>> 6] |= 1L << x;
+          }
+        }
+        c.card = card;
+        return c;
+      }
+      ArrayContainer c = new ArrayContainer(Math.max(card, 1));
+      for (int i = 0; i < runs.length; i += 2) {
+        int start = runs[i];
+        int end = start + runs[i + 1];
+        for (int x = start; x <= end; x++) {
+          c.content[c.card++] = (char) x;
+        }
+      }
+      return c;
+    }
+
+    @Override
+    Container add(char x) {
+      return contains(x) ? this : plain().add(x);
+    }
+
+    @Override
+    Container remove(char x) {
+      return contains(x) ? plain().remove(x) : this;
+    }
+
+    @Override
+    boolean contains(char x) {
+      int lo = 0;
+      int hi = runs.length / 2 - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int start = runs[2 * mid];
+        if (x < start) {
+          hi = mid - 1;
+        }
+        else if (x > start + runs[2 * mid + 1]) {
+          lo = mid + 1;
+        }
+        else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int cardinality() {
+      int n = 0;
+      for (int i = 0; i < runs.length; i += 2) {
+        n += runs[i + 1] + 1;
+      }
+      return n;
+    }
+
+    @Override
+    Container copy() {
+      return this; // IMMUTABLE
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return plain().toBitmap();
+    }
+
+    @Override
+    int fill(int high, int[] result, int pos) {
+      for (int i = 0; i < runs.length; i += 2) {
+        int start = runs[i];
+        int end = start + runs[i + 1];
+        for (int x = start; x <= end; x++) {
+          result[pos++] = high | x;
+        }
+      }
+      return pos;
+    }
+
+    @Override
+    int runs() {
+      return runs.length / 2;
+    }
+
+    @Override
+    int serializedSize() {
+      return 4 + 2 * runs.length;
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+      buf.put(TYPE).putInt(runs.length / 2);
+      for (int i = 0; i < runs.length; i++) {
+        buf.putChar(runs[i]);
+      }
+    }
+
+  }
+
+  private static final int MAGIC = 0x434C5242; // CLRB
+
+  private char[] keys;
+
+  private Container[] containers;
+
+  private int size;
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jclongra.StateError;
+import clojure.lang.IFn;
+import clojure.lang.Util;
+
+/**
+ * A lock-free Memo storage with single-flight misses. The first thread that
+ * misses on a key installs an in-flight marker and computes the value; other
+ * threads missing on the same key wait for that marker only, so f is called
+ * once per key.
+ */
+public final class ConcurrentMemoCache implements MemoCache {
+
+  public ConcurrentMemoCache() {
+    this(16, 1);
+  }
+
+  public ConcurrentMemoCache(int initialCapacity, int concurrencyLevel) {
+    this.map =
+        new ConcurrentHashMap<Object, Object>(initialCapacity, 0.75f,
+            concurrencyLevel);
+  }
+
+  @Override
+  public Object lookup(Object key, Memo memo) {
+    Object k = mask(key);
+    Object v = map.get(k);
+    if (v == null) {
+      InFlight flight = new InFlight();
+      v = map.putIfAbsent(k, flight);
+      if (v == null) {
+        return flight.run(k, key, memo);
+      }
+    }
+
+    memo.countCacheHit();
+    if (v instanceof InFlight) {
+      return ((InFlight) v).await();
+    }
+    return unmask(v);
+  }
+
+  @Override
+  public void put(Object key, Object value, Memo memo) {
+    map.put(mask(key), mask(value));
+  }
+
+  @Override
+  public void forEachEntry(IFn f) {
+    for (Map.Entry<Object, Object> e : map.entrySet()) {
+      Object v = e.getValue();
+      if (!(v instanceof InFlight)) {
+        f.invoke(unmask(e.getKey()), unmask(v));
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    Object k = mask(key);
+    Object v = map.get(k);
+    if (v == null || v instanceof InFlight) {
+      return false;
+    }
+    return map.remove(k, v);
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Returns the number of computed entries. The in-flight computations are
+   * not counted.
+   */
+  @Override
+  public int size() {
+    int n = 0;
+    for (Object v : map.values()) {
+      if (!(v instanceof InFlight)) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private final class InFlight {
+
+    private final Thread owner = Thread.currentThread();
+
+    private boolean done;
+
+    private Object value;
+
+    private Throwable error;
+
+    Object run(Object k, Object key, Memo memo) {
+      Object result;
+      try {
+        long start = memo.clock();
+        result = memo.compute(key);
+        if (memo.admits(key, result, start)) {
+          map.replace(k, this, mask(result));
+        }
+        else {
+          map.remove(k, this);
+        }
+      }
+      catch (Throwable t) {
+        map.remove(k, this);
+        complete(null, t);
+        throw Util.sneakyThrow(t);
+      }
+      complete(result, null);
+      return result;
+    }
+
+    synchronized void complete(Object value, Throwable error) {
+      this.value = value;
+      this.error = error;
+      this.done = true;
+      notifyAll();
+    }
+
+    synchronized Object await() {
+      if (owner == Thread.currentThread()) {
+        throw new StateError("Recursive memo call for a key being computed.");
+      }
+      boolean interrupted = false;
+      while (!done) {
+        try {
+          wait();
+        }
+        catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (error != null) {
+        throw Util.sneakyThrow(error);
+      }
+      return value;
+    }
+
+  }
+
+  private static Object mask(Object obj) {
+    return obj == null ? NIL : obj;
+  }
+
+  private static Object unmask(Object obj) {
+    return obj == NIL ? null : obj;
+  }
+
+  private static final Object NIL = new Object();
+
+  private final ConcurrentMap<Object, Object> map;
+
+}
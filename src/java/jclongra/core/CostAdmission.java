@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import clojure.lang.IFn;
+import clojure.lang.RT;
+
+/**
+ * Admits a freshly computed Memo value only when computing it was expensive
+ * enough: it took at least minCostNanos and, when a weigher is given, at least
+ * minCostNanosPerWeight for every unit of (weigher args value), e.g. a byte.
+ * The args are the seq of the memo arguments.
+ */
+public final class CostAdmission {
+
+  public CostAdmission(long minCostNanos, double minCostNanosPerWeight,
+      IFn weigher) {
+    if (minCostNanosPerWeight > 0 && weigher == null) {
+      throw new IllegalArgumentException(
+          "minCostNanosPerWeight requires a weigher.");
+    }
+    this.minCostNanos = minCostNanos;
+    this.minCostNanosPerWeight = minCostNanosPerWeight;
+    this.weigher = weigher;
+  }
+
+  public boolean admits(Object args, Object value, long costNanos) {
+    if (costNanos < minCostNanos) {
+      return false;
+    }
+    if (minCostNanosPerWeight > 0) {
+      long weight = RT.longCast(weigher.invoke(args, value));
+      return costNanos >= minCostNanosPerWeight * weight;
+    }
+    return true;
+  }
+
+  private final long minCostNanos;
+
+  private final double minCostNanosPerWeight;
+
+  private final IFn weigher;
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fast non-cryptographic hashes of byte ranges: the 64-bit xxHash64 and the
+ * 128-bit MurmurHash3 (x64 variant). Both read the input 8 bytes at a time,
+ * little-endian, and give the same results as the reference implementations.
+ * The ByteBuffer variants read at an absolute index and don't change the
+ * position of the buffer.
+ */
+public final class Hashing {
+
+  public static long xxHash64(byte[] b) {
+    return xxHash64(b, 0, b.length, 0);
+  }
+
+  public static long xxHash64(byte[] b, int off, int len, long seed) {
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new IndexOutOfBoundsException("offset " + off + ", length " + len
+          + ", array length " + b.length);
+    }
+    return xxHash64LE(ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN), off,
+        len, seed);
+  }
+
+  public static long xxHash64(ByteBuffer buf, int index, int len, long seed) {
+    return xxHash64LE(buf.duplicate().order(ByteOrder.LITTLE_ENDIAN), index,
+        len, seed);
+  }
+
+  /**
+   * Returns the 128-bit hash as {h1, h2}.
+   */
+  public static long[] murmur3x128(byte[] b) {
+    return murmur3x128(b, 0, b.length, 0);
+  }
+
+  public static long[] murmur3x128(byte[] b, int off, int len, int seed) {
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new IndexOutOfBoundsException("offset " + off + ", length " + len
+          + ", array length " + b.length);
+    }
+    return murmur3x128LE(ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN),
+        off, len, seed);
+  }
+
+  public static long[] murmur3x128(ByteBuffer buf, int index, int len,
+      int seed) {
+    return murmur3x128LE(buf.duplicate().order(ByteOrder.LITTLE_ENDIAN),
+        index, len, seed);
+  }
+
+  /**
+   * The 64-bit finalizer of MurmurHash3, a cheap bijective mix of the bits.
+   */
+  public static long mix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xFF51AFD7ED558CCDL;
+    k ^= k >>> 33;
+    k *= 0xC4CEB9FE1A85EC53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long xxHash64LE(ByteBuffer w, int off, int len, long seed) {
+    int end = off + len;
+    int i = off;
+    long h;
+    if (len >= 32) {
+      long v1 = seed + PRIME1 + PRIME2;
+      long v2 = seed + PRIME2;
+      long v3 = seed;
+      long v4 = seed - PRIME1;
+      for (; i + 32 <= end; i += 32) {
+        v1 = round(v1, w.getLong(i));
+        v2 = round(v2, w.getLong(i + 8));
+        v3 = round(v3, w.getLong(i + 16));
+        v4 = round(v4, w.getLong(i + 24));
+      }
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+          + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    }
+    else {
+      h = seed + PRIME5;
+    }
+    h += len;
+
+    for (; i + 8 <= end; i += 8) {
+      h ^= round(0, w.getLong(i));
+      h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+    }
+    if (i + 4 <= end) {
+      h ^= (w.getInt(i) & 0xFFFFFFFFL) * PRIME1;
+      h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+      i += 4;
+    }
+    for (; i < end; i++) {
+      h ^= (w.get(i) & 0xFFL) * PRIME5;
+      h = Long.rotateLeft(h, 11) * PRIME1;
+    }
+
+    h ^= h >>> 33;
+    h *= PRIME2;
+    h ^= h >>> 29;
+    h *= PRIME3;
+    h ^= h >>> 32;
+    return h;
+  }
+
+  private static long round(long acc, long input) {
+    return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+  }
+
+  private static long mergeRound(long acc, long v) {
+    return (acc ^ round(0, v)) * PRIME1 + PRIME4;
+  }
+
+  private static long[] murmur3x128LE(ByteBuffer w, int off, int len,
+      int seed) {
+    long h1 = seed & 0xFFFFFFFFL;
+    long h2 = h1;
+    int end = off + len;
+    int i = off;
+    for (; i + 16 <= end; i += 16) {
+      h1 ^= mixK1(w.getLong(i));
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52DCE729;
+      h2 ^= mixK2(w.getLong(i + 8));
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495AB5;
+    }
+
+    int rest = end - i;
+    if (rest > 0) {
+      long k1 = 0;
+      long k2 = 0;
+      for (int j = rest - 1; j >= 8; j--) {
+        k2 = (k2 << 8) | (w.get(i + j) & 0xFFL);
+      }
+      for (int j = Math.min(rest, 8) - 1; j >= 0; j--) {
+        k1 = (k1 << 8) | (w.get(i + j) & 0xFFL);
+      }
+      if (rest > 8) {
+        h2 ^= mixK2(k2);
+      }
+      h1 ^= mixK1(k1);
+    }
+
+    h1 ^= len;
+    h2 ^= len;
+    h1 += h2;
+    h2 += h1;
+    h1 = mix64(h1);
+    h2 = mix64(h2);
+    h1 += h2;
+    h2 += h1;
+    return new long[] { h1, h2 };
+  }
+
+  private static long mixK1(long k1) {
+    return Long.rotateLeft(k1 * C1, 31) * C2;
+  }
+
+  private static long mixK2(long k2) {
+    return Long.rotateLeft(k2 * C2, 33) * C1;
+  }
+
+  // xxHash64
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  // MurmurHash3
+
+  private static final long C1 = 0x87C37B91114253D5L;
+
+  private static final long C2 = 0x4CF5AD432745937FL;
+
+  private Hashing() {
+    ;
+  }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import jclongra.TypeError;
+import clojure.lang.BigInt;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ITransientCollection;
+import clojure.lang.PersistentVector;
+
+/**
+ * An order-preserving (memcomparable) encoding of keys: the encoded keys
+ * compared as unsigned bytes (@see Bytes#compare) are in the order of the
+ * keys. Every value is a tag byte followed by:
+ *
+ * <ul>
+ * <li>nil - nothing,</li>
+ * <li>integral numbers (of any type) below Long.MIN_VALUE - the length of
+ * the magnitude and the magnitude, both complemented,</li>
+ * <li>integral numbers (of any type) within the long range - 8 bytes
+ * big-endian, the sign bit flipped,</li>
+ * <li>integral numbers (of any type) above Long.MAX_VALUE - the length of
+ * the magnitude and the magnitude,</li>
+ * <li>doubles (and floats) - the bits big-endian, all of them flipped for the
+ * negative values, the sign bit only for the others (-0.0 sorts before 0.0,
+ * NaN after +Infinity),</li>
+ * <li>strings - UTF-8 (code point order), byte[] and Bytes - raw, both with
+ * 0x00 escaped as 0x00 0xFF and terminated with 0x00 0x01,</li>
+ * <li>lists (tuples) - the elements, terminated with 0x00.</li>
+ * </ul>
+ *
+ * So all the integral numbers share a single ordering, 1 and 1N encode the
+ * same (and decode as a Long), 2 sorts after 1N. A BigInteger (BigInt) out of
+ * the long range decodes as a BigInteger. The other values are ordered by
+ * the tags, as listed above, so e.g. all the integral numbers sort before all
+ * the doubles.
+ *
+ * <p>
+ * A composite key encoded with encodeTuple(List) has no tuple tag nor
+ * terminator, so the encoding of its every prefix is a byte prefix of the key
+ * (useful for range scans).
+ */
+public final class KeyCodec {
+
+  public static byte[] encode(Object key) {
+    ByteSink sink = ByteSink.growable(INITIAL_CAPACITY, false);
+    encode(key, sink);
+    return sink.toByteArray();
+  }
+
+  public static byte[] encodeTuple(List<?> keys) {
+    ByteSink sink = ByteSink.growable(INITIAL_CAPACITY, false);
+    encodeTuple(keys, sink);
+    return sink.toByteArray();
+  }
+
+  /**
+   * Writes the key into the sink. Returns the number of bytes written.
+   */
+  public static int encode(Object key, ByteSink sink) {
+    int start = sink.position();
+    write(key, sink);
+    return sink.position() - start;
+  }
+
+  public static int encodeTuple(List<?> keys, ByteSink sink) {
+    int start = sink.position();
+    for (Object key : keys) {
+      write(key, sink);
+    }
+    return sink.position() - start;
+  }
+
+  public static Object decode(byte[] b, int off, int len) {
+    Reader r = new Reader(b, off, off + len);
+    Object result = r.read();
+    if (r.pos != r.end) {
+      throw new IllegalArgumentException("Trailing bytes after the key at "
+          + r.pos);
+    }
+    return result;
+  }
+
+  public static IPersistentVector decodeTuple(byte[] b, int off, int len) {
+    Reader r = new Reader(b, off, off + len);
+    ITransientCollection result = PersistentVector.EMPTY.asTransient();
+    while (r.pos < r.end) {
+      result = result.conj(r.read());
+    }
+    return (IPersistentVector) result.persistent();
+  }
+
+  private static void write(Object key, ByteSink sink) {
+    if (key == null) {
+      sink.ensure(1).put(NIL);
+    }
+    else if (key instanceof Long || key instanceof Integer
+        || key instanceof Short || key instanceof Byte) {
+      sink.ensure(9).put(LONG).putLong(((Number) key).longValue() ^ SIGN);
+    }
+    else if (key instanceof Double || key instanceof Float) {
+      long bits = Double.doubleToLongBits(((Number) key).doubleValue());
+      sink.ensure(9).put(DOUBLE).putLong(bits < 0 ? ~bits : bits ^ SIGN);
+    }
+    else if (key instanceof BigInteger) {
+      writeBigInteger((BigInteger) key, sink);
+    }
+    else if (key instanceof BigInt) {
+      BigInt n = (BigInt) key;
+      if (n.bipart == null) {
+        sink.ensure(9).put(LONG).putLong(n.lpart ^ SIGN);
+      }
+      else {
+        writeBigInteger(n.bipart, sink);
+      }
+    }
+    else if (key instanceof String) {
+      byte[] b = Utf8.encode((String) key);
+      writeEscaped(STRING, b, 0, b.length, sink);
+    }
+    else if (key instanceof byte[]) {
+      byte[] b = (byte[]) key;
+      writeEscaped(BYTES, b, 0, b.length, sink);
+    }
+    else if (key instanceof Bytes) {
+      Bytes b = (Bytes) key;
+      writeEscaped(BYTES, b.array(), b.offset(), b.length(), sink);
+    }
+    else if (key instanceof List) {
+      sink.ensure(1).put(TUPLE);
+      for (Object e : (List<?>) key) {
+        write(e, sink);
+      }
+      sink.ensure(1).put(END);
+    }
+    else {
+      throw new TypeError("Can't encode a key of " + key.getClass());
+    }
+  }
+
+  private static void writeBigInteger(BigInteger n, ByteSink sink) {
+    if (n.bitLength() < 64) {
+      sink.ensure(9).put(LONG).putLong(n.longValue() ^ SIGN);
+      return;
+    }
+    byte[] magnitude = n.abs().toByteArray();
+    // toByteArray MAY PREPEND A SIGN BYTE 0
+    int off = magnitude[0] == 0 ? 1 : 0;
+    int len = magnitude.length - off;
+    ByteBuffer buf = sink.ensure(5 + len);
+    if (n.signum() > 0) {
+      buf.put(BIG_POSITIVE).putInt(len).put(magnitude, off, len);
+    }
+    else {
+      buf.put(BIG_NEGATIVE).putInt(~len);
+      for (int i = off; i < magnitude.length; i++) {
+        buf.put((byte) ~magnitude[i]);
+      }
+    }
+  }
+
+  private static void writeEscaped(byte tag, byte[] b, int off, int len,
+      ByteSink sink) {
+    int zeros = 0;
+    for (int i = off; i < off + len; i++) {
+      if (b[i] == 0) {
+        zeros++;
+      }
+    }
+    ByteBuffer buf = sink.ensure(1 + len + zeros + 2);
+    buf.put(tag);
+    if (zeros == 0) {
+      buf.put(b, off, len);
+    }
+    else {
+      for (int i = off; i < off + len; i++) {
+        buf.put(b[i]);
+        if (b[i] == 0) {
+          buf.put(ESCAPED_ZERO);
+        }
+      }
+    }
+    buf.put(END).put(TERMINATOR);
+  }
+
+  private static final class Reader {
+
+    final byte[] b;
+
+    final int end;
+
+    int pos;
+
+    Reader(byte[] b, int pos, int end) {
+      this.b = b;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    Object read() {
+      byte tag = b[pos++];
+      switch (tag) {
+      case NIL:
+        return null;
+      case LONG:
+        return Bits.getLong(b, advance(8)) ^ SIGN;
+      case DOUBLE: {
+        long bits = Bits.getLong(b, advance(8));
+        return Double.longBitsToDouble(bits < 0 ? bits ^ SIGN : ~bits);
+      }
+      case BIG_NEGATIVE:
+        return readBigInteger(true);
+      case BIG_POSITIVE:
+        return readBigInteger(false);
+      case STRING:
+        return Utf8.decode(unescape());
+      case BYTES:
+        return unescape();
+      case TUPLE: {
+        ITransientCollection result = PersistentVector.EMPTY.asTransient();
+        while (b[pos] != END) {
+          result = result.conj(read());
+        }
+        pos++;
+        return result.persistent();
+      }
+      default:
+        throw new IllegalArgumentException("Illegal key tag " + tag + " at "
+            + (pos - 1));
+      }
+    }
+
+    private BigInteger readBigInteger(boolean negative) {
+      int len = Bits.getInt(b, advance(4));
+      if (negative) {
+        len = ~len;
+      }
+      byte[] magnitude = new byte[len];
+      int off = advance(len);
+      for (int i = 0; i < len; i++) {
+        magnitude[i] = negative ? (byte) ~b[off + i] : b[off + i];
+      }
+      return new BigInteger(negative ? -1 : 1, magnitude);
+    }
+
+    private byte[] unescape() {
+      int len = 0;
+      int i = pos;
+      while (!(b[i] == END && b[i + 1] == TERMINATOR)) {
+        i += b[i] == 0 ? 2 : 1;
+        len++;
+      }
+      byte[] result = new byte[len];
+      for (int j = 0; j < len; j++) {
+        result[j] = b[pos];
+        pos += b[pos] == 0 ? 2 : 1;
+      }
+      pos += 2;
+      return result;
+    }
+
+    private int advance(int n) {
+      if (pos + n > end) {
+        throw new IllegalArgumentException("Truncated key at " + pos);
+      }
+      int result = pos;
+      pos += n;
+      return result;
+    }
+
+  }
+
+  private static final long SIGN = Long.MIN_VALUE;
+
+  private static final int INITIAL_CAPACITY = 32;
+
+  private static final byte END = 0x00;
+
+  private static final byte TERMINATOR = 0x01;
+
+  private static final byte ESCAPED_ZERO = (byte) 0xFF;
+
+  private static final byte NIL = 0x05;
+
+  private static final byte BIG_NEGATIVE = 0x0F;
+
+  private static final byte LONG = 0x10;
+
+  private static final byte BIG_POSITIVE = 0x11;
+
+  private static final byte DOUBLE = 0x20;
+
+  private static final byte STRING = 0x40;
+
+  private static final byte BYTES = 0x50;
+
+  private static final byte TUPLE = 0x60;
+
+  private KeyCodec() {
+    ;
+  }
+
+}
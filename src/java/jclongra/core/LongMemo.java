@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import clojure.lang.IFn;
+import clojure.lang.ISeq;
+import clojure.lang.RT;
+
+/**
+ * A Memo for unary functions over the integral (long) domain. Backed by a
+ * {@link LongMemoCache}, with the primitive invokePrim(long) entry. Calls with
+ * a non-integral argument or of other arities are passed to f unmemoized.
+ */
+public final class LongMemo extends Memo implements IFn.LO {
+
+  public LongMemo(IFn f, IFn pred, boolean traceHits, LongMemoCache cache,
+      CostAdmission admission) {
+    super(f, pred, traceHits, cache, admission);
+    this.cache = cache;
+  }
+
+  @Override
+  public Object invokePrim(long arg) {
+    return cache.lookup(arg, this);
+  }
+
+  @Override
+  public Object invoke(Object arg) {
+    if (arg instanceof Long || arg instanceof Integer || arg instanceof Short
+        || arg instanceof Byte) {
+      return cache.lookup(((Number) arg).longValue(), this);
+    }
+    return f.invoke(arg);
+  }
+
+  @Override
+  protected Object doInvoke(Object args) {
+    ISeq s = (ISeq) args;
+    if (s != null && s.next() == null) {
+      return invoke(s.first());
+    }
+    return f.applyTo(s);
+  }
+
+  @Override
+  protected Object keyOf(Object args) {
+    return RT.first(args);
+  }
+
+  @Override
+  protected ISeq argsOf(Object key) {
+    return RT.list(key);
+  }
+
+  @Override
+  protected Object call(Object key) {
+    if (f instanceof IFn.LO) {
+      return ((IFn.LO) f).invokePrim(((Long) key).longValue());
+    }
+    return f.invoke(key);
+  }
+
+  private final LongMemoCache cache;
+
+}
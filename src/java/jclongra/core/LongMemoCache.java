@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+import clojure.lang.IFn;
+
+/**
+ * A long-keyed Memo storage. Keys in [0, denseLimit) live in a plain array,
+ * the others in an open-addressing (linear probing) table of primitive longs.
+ * Lookups of the array are lock-free, lookups of the table use optimistic
+ * reads of a StampedLock, so hits neither lock nor allocate.
+ */
+public final class LongMemoCache implements MemoCache {
+
+  public LongMemoCache(int denseLimit) {
+    if (denseLimit < 0) {
+      throw new IllegalArgumentException("Negative denseLimit " + denseLimit);
+    }
+    this.dense = new AtomicReferenceArray<Object>(denseLimit);
+  }
+
+  public LongMemoCache() {
+    this(DEFAULT_DENSE_LIMIT);
+  }
+
+  public Object lookup(long key, Memo memo) {
+    Object v = get(key);
+    if (v != null) {
+      memo.countCacheHit();
+      return unmask(v);
+    }
+
+    long start = memo.clock();
+    Object value = memo.compute(key);
+    if (memo.admits(key, value, start)) {
+      put(key, mask(value));
+    }
+    return value;
+  }
+
+  @Override
+  public Object lookup(Object key, Memo memo) {
+    return lookup(((Number) key).longValue(), memo);
+  }
+
+  @Override
+  public void put(Object key, Object value, Memo memo) {
+    put(((Number) key).longValue(), mask(value));
+  }
+
+  @Override
+  public void forEachEntry(IFn f) {
+    for (int i = 0; i < dense.length(); i++) {
+      Object v = dense.get(i);
+      if (v != null) {
+        f.invoke(Long.valueOf(i), unmask(v));
+      }
+    }
+
+    long[] keys;
+    Object[] vals;
+    long stamp = lock.readLock();
+    try {
+      keys = table.keys.clone();
+      vals = table.vals.clone();
+    }
+    finally {
+      lock.unlockRead(stamp);
+    }
+    for (int i = 0; i < vals.length; i++) {
+      if (vals[i] != null) {
+        f.invoke(Long.valueOf(keys[i]), unmask(vals[i]));
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(Object key) {
+    long k = ((Number) key).longValue();
+    if (isDense(k)) {
+      Object v = dense.getAndSet((int) k, null);
+      if (v != null) {
+        denseSize.decrementAndGet();
+      }
+      return v != null;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      return table.remove(k);
+    }
+    finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < dense.length(); i++) {
+      if (dense.getAndSet(i, null) != null) {
+        denseSize.decrementAndGet();
+      }
+    }
+    long stamp = lock.writeLock();
+    try {
+      table = new Table(INITIAL_CAPACITY);
+    }
+    finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return denseSize.get() + table.size;
+    }
+    finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private Object get(long k) {
+    if (isDense(k)) {
+      return dense.get((int) k);
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    Object v = table.get(k);
+    if (lock.validate(stamp)) {
+      return v;
+    }
+    stamp = lock.readLock();
+    try {
+      return table.get(k);
+    }
+    finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private void put(long k, Object v) {
+    if (isDense(k)) {
+      if (dense.getAndSet((int) k, v) == null) {
+        denseSize.incrementAndGet();
+      }
+      return;
+    }
+
+    long stamp = lock.writeLock();
+    try {
+      if (!table.put(k, v)) {
+        return;
+      }
+      if (table.size > table.threshold) {
+        Table bigger = new Table(table.keys.length << 1);
+        table.copyTo(bigger);
+        table = bigger;
+      }
+    }
+    finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private boolean isDense(long k) {
+    return k >= 0 && k < dense.length();
+  }
+
+  /**
+   * An empty slot holds null in vals. Readers may see the table while being
+   * modified (optimistic reads) and must only rely on the results when the
+   * stamp validates; all the loops are bounded for that reason.
+   */
+  private static final class Table {
+
+    final long[] keys;
+
+    final Object[] vals;
+
+    final int threshold;
+
+    int size;
+
+    Table(int capacity) {
+      this.keys = new long[capacity];
+      this.vals = new Object[capacity];
+      this.threshold = capacity - (capacity >>> 2);
+    }
+
+    Object get(long k) {
+      int mask = keys.length - 1;
+      int i = slot(k, mask);
+      for (int n = 0; n <= mask; n++) {
+        Object v = vals[i];
+        if (v == null) {
+          return null;
+        }
+        if (keys[i] == k) {
+          return v;
+        }
+        i = (i + 1) & mask;
+      }
+      return null;
+    }
+
+    /**
+     * Returns true iff a new key was added.
+     */
+    boolean put(long k, Object v) {
+      int mask = keys.length - 1;
+      int i = slot(k, mask);
+      while (vals[i] != null) {
+        if (keys[i] == k) {
+          vals[i] = v;
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = k;
+      vals[i] = v;
+      size++;
+      return true;
+    }
+
+    /**
+     * Removes with the backward shift, so that no tombstones are needed.
+     */
+    boolean remove(long k) {
+      int mask = keys.length - 1;
+      int i = slot(k, mask);
+      while (true) {
+        if (vals[i] == null) {
+          return false;
+        }
+        if (keys[i] == k) {
+          break;
+        }
+        i = (i + 1) & mask;
+      }
+
+      int hole = i;
+      int j = (i + 1) & mask;
+      while (vals[j] != null) {
+        int home = slot(keys[j], mask);
+        // MOVE j INTO THE hole IF ITS home DOES NOT LAY CYCLICALLY IN (hole, j]
+        if (((j - home) & mask) >= ((j - hole) & mask)) {
+          keys[hole] = keys[j];
+          vals[hole] = vals[j];
+          hole = j;
+        }
+        j = (j + 1) & mask;
+      }
+      vals[hole] = null;
+      size--;
+      return true;
+    }
+
+    void copyTo(Table other) {
+      for (int i = 0; i < vals.length; i++) {
+        if (vals[i] != null) {
+          other.put(keys[i], vals[i]);
+        }
+      }
+    }
+
+    private static int slot(long k, int mask) {
+      long h = k * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+  }
+
+  private static Object mask(Object obj) {
+    return obj == null ? NIL : obj;
+  }
+
+  private static Object unmask(Object obj) {
+    return obj == NIL ? null : obj;
+  }
+
+  private static final Object NIL = new Object();
+
+  private static final int DEFAULT_DENSE_LIMIT = 1024;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final AtomicReferenceArray<Object> dense;
+
+  private final AtomicInteger denseSize = new AtomicInteger();
+
+  private final StampedLock lock = new StampedLock();
+
+  private volatile Table table = new Table(INITIAL_CAPACITY);
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jclongra.StateError;
+import clojure.lang.IFn;
+import clojure.lang.RT;
+
+/**
+ * A table of long values of (step table i) for i in [0, size), backed by a
+ * primitive array. The table is filled bottom-up, a block at a time, when an
+ * index is first asked for, so step may look up the entries with smaller
+ * indices without recursion. When step does not look up any entries at all,
+ * the table may be filled in parallel (@see #fillParallel()).
+ *
+ * <p>
+ * Steps being IFn.OLL (e.g. (fn [t ^long i] ...) returning a long) are called
+ * without boxing.
+ */
+public final class LongTabulation {
+
+  public LongTabulation(int size, IFn step, int blockSize) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative size " + size);
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Illegal blockSize " + blockSize);
+    }
+    this.table = new long[size];
+    this.step = step;
+    this.primStep = step instanceof IFn.OLL ? (IFn.OLL) step : null;
+    this.blockSize = blockSize;
+  }
+
+  public int size() {
+    return table.length;
+  }
+
+  public long get(long i) {
+    if (i < 0 || i >= table.length) {
+      throw new IndexOutOfBoundsException(String.valueOf(i));
+    }
+    int k = (int) i;
+    if (k < filled) {
+      return table[k];
+    }
+    return getFilling(k);
+  }
+
+  /**
+   * Fills the whole table bottom-up.
+   */
+  public LongTabulation fill() {
+    if (table.length > 0) {
+      get(table.length - 1);
+    }
+    return this;
+  }
+
+  /**
+   * Fills the rest of the table in parallel, in blocks, on the common
+   * fork-join pool. The step must not look up any entries of the table not
+   * filled before; the lookups of such entries (from any thread) throw a
+   * StateError while the parallel filling lasts.
+   */
+  public LongTabulation fillParallel() {
+    int from;
+    synchronized (this) {
+      if (filling || parallelFilling) {
+        throw new StateError("Can't fill in parallel while filling.");
+      }
+      parallelFilling = true;
+      from = cursor;
+    }
+    boolean done = false;
+    try {
+      ForkJoinPool.commonPool().invoke(new Fill(from, table.length));
+      done = true;
+    }
+    finally {
+      synchronized (this) {
+        if (done) {
+          cursor = table.length;
+          filled = table.length;
+        }
+        parallelFilling = false;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns a copy of the filled part of the table.
+   */
+  public long[] toArray() {
+    int n = filled;
+    long[] result = new long[n];
+    System.arraycopy(table, 0, result, 0, n);
+    return result;
+  }
+
+  private long getFilling(int k) {
+    if (parallelFilling) {
+      throw new StateError("The entry " + k + " is being filled in parallel.");
+    }
+    return getFillingSequential(k);
+  }
+
+  private synchronized long getFillingSequential(int k) {
+    if (k < cursor) {
+      return table[k];
+    }
+    if (filling || parallelFilling) {
+      throw new StateError("The step depends on the entry " + k
+          + " not filled yet.");
+    }
+    filling = true;
+    try {
+      int end = (int) Math.min(((long) k / blockSize + 1) * blockSize,
+          table.length);
+      for (int i = cursor; i < end; i++) {
+        table[i] = call(i);
+        cursor = i + 1;
+      }
+    }
+    finally {
+      filling = false;
+      filled = cursor;
+    }
+    return table[k];
+  }
+
+  private long call(int i) {
+    if (primStep != null) {
+      return primStep.invokePrim(this, i);
+    }
+    return RT.longCast(step.invoke(this, i));
+  }
+
+  private final class Fill extends RecursiveAction {
+
+    private final int start;
+
+    private final int end;
+
+    Fill(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= blockSize) {
+        for (int i = start; i < end; i++) {
+          table[i] = call(i);
+        }
+        return;
+      }
+      int mid = (start + end) >>> 1;
+      invokeAll(new Fill(start, mid), new Fill(mid, end));
+    }
+
+  }
+
+  private final long[] table;
+
+  private final IFn step;
+
+  private final IFn.OLL primStep;
+
+  private final int blockSize;
+
+  /**
+   * The entries below are visible to all threads.
+   */
+  private volatile int filled;
+
+  /**
+   * The entries below are computed, guarded by this.
+   */
+  private int cursor;
+
+  private boolean filling;
+
+  /**
+   * Set (under this) for the time of fillParallel(), that runs without
+   * holding the monitor.
+   */
+  private volatile boolean parallelFilling;
+
+}
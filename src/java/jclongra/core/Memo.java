@@ -4,77 +4,143 @@
  */
 package jclongra.core;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
+import clojure.lang.AFn;
 import clojure.lang.IFn;
 import clojure.lang.ISeq;
+import clojure.lang.RT;
 import clojure.lang.RestFn;
 
-public final class Memo extends RestFn {
+public class Memo extends RestFn {
 
   public Memo(IFn f, IFn pred, boolean traceHits) {
+    this(f, pred, traceHits, new SynchronizedMemoCache());
+  }
+
+  public Memo(IFn f, IFn pred, boolean traceHits, MemoCache cache) {
+    this(f, pred, traceHits, cache, null);
+  }
+
+  /**
+   * @param admission
+   *          when not null, the computed values must pass it (besides pred) to
+   *          get cached
+   */
+  public Memo(IFn f, IFn pred, boolean traceHits, MemoCache cache,
+      CostAdmission admission) {
     this.f = f;
     this.pred = pred;
     this.traceHits = traceHits;
-
-    if (!traceHits) {
-      this.fHits = -1;
-      this.cacheHits = -1;
-    }
+    this.cache = cache;
+    this.admission = admission;
+    this.timed = traceHits || admission != null;
   }
 
-  public final synchronized void resetAll(boolean clearHits) {
+  public final void resetAll(boolean clearHits) {
     this.cache.clear();
     if (traceHits && clearHits) {
-      this.fHits = 0;
-      this.cacheHits = 0;
+      this.fHits.reset();
+      this.cacheHits.reset();
+      this.evictions.reset();
+      this.missNanos.reset();
     }
   }
 
-  public final synchronized boolean reset(Object key) {
-    return this.cache.remove(key) != null;
+  /**
+   * @param key
+   *          the arguments (a seq or a vector) the value was memoized for
+   */
+  public final boolean reset(Object key) {
+    return this.cache.remove(keyOf(key));
   }
 
-  public final synchronized int cacheSize() {
-    return this.cache.size();
+  /**
+   * Stores the value for the arguments (a seq or a vector) in the cache, as
+   * if it were computed by f.
+   */
+  public final void preload(Object args, Object value) {
+    this.cache.put(keyOf(args), value, this);
   }
 
-  public final synchronized long cacheHits() {
-    return this.cacheHits;
+  /**
+   * Calls (f args value) for every cached entry, with args being a seq of
+   * the arguments the value was memoized for.
+   */
+  public final void forEachEntry(final IFn f) {
+    this.cache.forEachEntry(new AFn() {
+      @Override
+      public Object invoke(Object key, Object value) {
+        return f.invoke(argsOf(key), value);
+      }
+    });
   }
 
-  public final synchronized long fHits() {
-    return this.fHits;
+  /**
+   * Returns a future of the value for the arguments (a seq or a vector). With
+   * an {@link AsyncMemoCache} a miss is computed on its executor, otherwise
+   * the value is computed right away.
+   */
+  public final CompletableFuture<Object> getAsync(Object args) {
+    if (cache instanceof AsyncMemoCache) {
+      return ((AsyncMemoCache) cache).lookupAsync(keyOf(args), this);
+    }
+    CompletableFuture<Object> result = new CompletableFuture<Object>();
+    try {
+      result.complete(applyTo(RT.seq(args)));
+    }
+    catch (Throwable t) {
+      result.completeExceptionally(t);
+    }
+    return result;
   }
 
-  public final synchronized long totalHits() {
-    return this.cacheHits + this.fHits;
+  /**
+   * Drops the expired entries of a {@link BoundedMemoCache}. Returns the
+   * number of entries dropped.
+   */
+  public final int cleanUp() {
+    if (cache instanceof BoundedMemoCache) {
+      return ((BoundedMemoCache) cache).cleanUp(this);
+    }
+    return 0;
   }
 
-  @Override
-  protected final Object doInvoke(Object args) {
-    synchronized (this) {
-      if (cache.containsKey(args)) {
-        if (traceHits) {
-          cacheHits += 1;
-        }
-        return cache.get(args);
-      }
-    }
+  public final int cacheSize() {
+    return this.cache.size();
+  }
 
-    Object value = f.applyTo((ISeq) args);
-    Object predValue = pred.invoke(value);
+  public final long cacheHits() {
+    return traceHits ? this.cacheHits.sum() : -1;
+  }
 
-    synchronized (this) {
-      if (predValue != null && predValue != Boolean.FALSE) {
-        cache.put(args, value);
-      }
-      if (traceHits) {
-        fHits += 1;
-      }
-      return value;
+  public final long fHits() {
+    return traceHits ? this.fHits.sum() : -1;
+  }
+
+  public final long totalHits() {
+    return cacheHits() + fHits();
+  }
+
+  public final long evictions() {
+    return traceHits ? this.evictions.sum() : -1;
+  }
+
+  /**
+   * Returns the average time (in nanoseconds) of calling f on a miss, -1 if
+   * not tracing the hits, NaN when there were no misses.
+   */
+  public final double avgMissNanos() {
+    if (!traceHits) {
+      return -1;
     }
+    return (double) this.missNanos.sum() / this.fHits.sum();
+  }
+
+  @Override
+  protected Object doInvoke(Object args) {
+    return cache.lookup(args, this);
   }
 
   @Override
@@ -82,16 +148,106 @@ public final class Memo extends RestFn {
     return 0;
   }
 
-  private final IFn f;
+  /**
+   * Maps the arguments (a seq or a vector) to the key used by the cache.
+   */
+  protected Object keyOf(Object args) {
+    return RT.seq(args);
+  }
+
+  /**
+   * Maps the cache key back to the seq of arguments. @see #keyOf(Object)
+   */
+  protected ISeq argsOf(Object key) {
+    return (ISeq) key;
+  }
+
+  /**
+   * Calls f for the arguments represented by the key.
+   */
+  protected Object call(Object key) {
+    return f.applyTo((ISeq) key);
+  }
+
+  protected final Object lookup(Object key) {
+    return cache.lookup(key, this);
+  }
+
+  /**
+   * Called by the cache whenever the value for key was found (or was being
+   * computed by another thread).
+   */
+  final void countCacheHit() {
+    if (traceHits) {
+      cacheHits.increment();
+    }
+  }
+
+  /**
+   * Called by the cache whenever it drops an entry on its own (because of the
+   * size/weight bounds or the expiration).
+   */
+  final void countEviction() {
+    if (traceHits) {
+      evictions.increment();
+    }
+  }
+
+  /**
+   * Called by the cache just before compute(key). Returns the start time to
+   * be passed to admits(key, value, start).
+   */
+  final long clock() {
+    return timed ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Called by the cache on a miss to calculate the value for the key.
+   */
+  final Object compute(Object key) {
+    Object value = call(key);
+    if (traceHits) {
+      fHits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Answers whether the value computed for the key since start may be stored
+   * in the cache. Traces the time of the miss.
+   */
+  final boolean admits(Object key, Object value, long start) {
+    if (timed) {
+      long cost = System.nanoTime() - start;
+      if (traceHits) {
+        missNanos.add(cost);
+      }
+      if (admission != null && !admission.admits(argsOf(key), value, cost)) {
+        return false;
+      }
+    }
+    Object predValue = pred.invoke(value);
+    return predValue != null && predValue != Boolean.FALSE;
+  }
+
+  protected final IFn f;
 
   private final IFn pred;
 
   private final boolean traceHits;
 
-  private final Map<Object, Object> cache = new HashMap<Object, Object>();
+  private final MemoCache cache;
+
+  private final CostAdmission admission;
+
+  private final boolean timed;
+
+  private final LongAdder fHits = new LongAdder();
+
+  private final LongAdder cacheHits = new LongAdder();
 
-  private long fHits;
+  private final LongAdder evictions = new LongAdder();
 
-  private long cacheHits;
+  private final LongAdder missNanos = new LongAdder();
 
 }
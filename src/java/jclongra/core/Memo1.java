@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import clojure.lang.IFn;
+import clojure.lang.ISeq;
+import clojure.lang.RT;
+
+/**
+ * A Memo for unary functions. The argument itself is the cache key, so the
+ * calls don't allocate. Calls of other arities are passed to f unmemoized.
+ */
+public final class Memo1 extends Memo {
+
+  public Memo1(IFn f, IFn pred, boolean traceHits, MemoCache cache,
+      CostAdmission admission) {
+    super(f, pred, traceHits, cache, admission);
+  }
+
+  @Override
+  public Object invoke(Object arg) {
+    return lookup(arg);
+  }
+
+  @Override
+  protected Object doInvoke(Object args) {
+    ISeq s = (ISeq) args;
+    if (s != null && s.next() == null) {
+      return lookup(s.first());
+    }
+    return f.applyTo(s);
+  }
+
+  @Override
+  protected Object keyOf(Object args) {
+    return RT.first(args);
+  }
+
+  @Override
+  protected ISeq argsOf(Object key) {
+    return RT.list(key);
+  }
+
+  @Override
+  protected Object call(Object key) {
+    return f.invoke(key);
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import clojure.lang.IFn;
+import clojure.lang.ISeq;
+import clojure.lang.RT;
+
+/**
+ * A Memo for binary functions. The cache key is a {@link Pair} of the
+ * arguments. Calls of other arities are passed to f unmemoized.
+ */
+public final class Memo2 extends Memo {
+
+  public Memo2(IFn f, IFn pred, boolean traceHits, MemoCache cache,
+      CostAdmission admission) {
+    super(f, pred, traceHits, cache, admission);
+  }
+
+  @Override
+  public Object invoke(Object arg1, Object arg2) {
+    return lookup(Pair.of(arg1, arg2));
+  }
+
+  @Override
+  protected Object doInvoke(Object args) {
+    ISeq s = (ISeq) args;
+    if (s != null && s.next() != null && s.next().next() == null) {
+      return lookup(Pair.of(s.first(), s.next().first()));
+    }
+    return f.applyTo(s);
+  }
+
+  @Override
+  protected Object keyOf(Object args) {
+    return Pair.of(RT.first(args), RT.second(args));
+  }
+
+  @Override
+  protected ISeq argsOf(Object key) {
+    return ((Pair<?, ?>) key).seq();
+  }
+
+  @Override
+  protected Object call(Object key) {
+    Pair<?, ?> p = (Pair<?, ?>) key;
+    return f.invoke(p.first(), p.second());
+  }
+
+}
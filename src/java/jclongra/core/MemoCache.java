@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import clojure.lang.IFn;
+
+/**
+ * A storage strategy for {@link Memo}. Implementations decide on locking and
+ * on what happens when many threads miss on the same key.
+ */
+public interface MemoCache {
+
+  /**
+   * Returns the value cached for the key. On a miss calls memo.clock() and
+   * memo.compute(key), consults memo.admits(key, value, start) and stores the
+   * value if admitted.
+   */
+  Object lookup(Object key, Memo memo);
+
+  /**
+   * Stores the value under the key unconditionally (e.g. when loading a
+   * snapshot).
+   */
+  void put(Object key, Object value, Memo memo);
+
+  /**
+   * Calls (f key value) for every cached entry. The callback is not called
+   * while holding any lock of the cache.
+   */
+  void forEachEntry(IFn f);
+
+  boolean remove(Object key);
+
+  void clear();
+
+  int size();
+
+}
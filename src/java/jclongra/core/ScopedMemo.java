@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import jclongra.StateError;
+import clojure.lang.IFn;
+import clojure.lang.ISeq;
+import clojure.lang.RestFn;
+import clojure.lang.Util;
+
+/**
+ * A memo active only within scopes opened by the calling thread (@see
+ * #enter(), #exit()). Every scope has its own thread-confined cache, created
+ * on entry and dropped on exit, so the lookups take no locks. Outside of any
+ * scope, or in other threads, the calls go to f unmemoized.
+ */
+public final class ScopedMemo extends RestFn {
+
+  public ScopedMemo(IFn f, IFn pred) {
+    this.f = f;
+    this.pred = pred;
+  }
+
+  public void enter() {
+    Thread t = Thread.currentThread();
+    Frame frame = new Frame(t, current(t));
+    frames.set(frame);
+    last = frame;
+  }
+
+  public void exit() {
+    Thread t = Thread.currentThread();
+    Frame frame = current(t);
+    if (frame == null) {
+      throw new StateError("No memoizing scope to exit.");
+    }
+    if (frame.outer == null) {
+      frames.remove();
+    }
+    else {
+      frames.set(frame.outer);
+    }
+    last = frame.outer;
+  }
+
+  /**
+   * Returns the size of the cache in the current scope, -1 when called out of
+   * any scope.
+   */
+  public int cacheSize() {
+    Frame frame = current(Thread.currentThread());
+    return frame == null ? -1 : frame.cache.size();
+  }
+
+  @Override
+  public Object invoke(Object arg) {
+    Frame frame = current(Thread.currentThread());
+    if (frame == null) {
+      return f.invoke(arg);
+    }
+    Object v = frame.cache.get(arg);
+    if (v != null) {
+      return unmask(v);
+    }
+    return store(frame, arg, f.invoke(arg));
+  }
+
+  @Override
+  public Object invoke(Object arg1, Object arg2) {
+    Frame frame = current(Thread.currentThread());
+    if (frame == null) {
+      return f.invoke(arg1, arg2);
+    }
+    Pair<Object, Object> key = Pair.of(arg1, arg2);
+    Object v = frame.cache.get(key);
+    if (v != null) {
+      return unmask(v);
+    }
+    return store(frame, key, f.invoke(arg1, arg2));
+  }
+
+  @Override
+  protected Object doInvoke(Object args) {
+    ISeq s = (ISeq) args;
+    if (s != null && s.next() == null) {
+      return invoke(s.first());
+    }
+    if (s != null && s.next().next() == null) {
+      return invoke(s.first(), s.next().first());
+    }
+
+    Frame frame = current(Thread.currentThread());
+    if (frame == null) {
+      return f.applyTo(s);
+    }
+    ArgsKey key = new ArgsKey(s);
+    Object v = frame.cache.get(key);
+    if (v != null) {
+      return unmask(v);
+    }
+    return store(frame, key, f.applyTo(s));
+  }
+
+  @Override
+  public int getRequiredArity() {
+    return 0;
+  }
+
+  private Object store(Frame frame, Object key, Object value) {
+    Object predValue = pred.invoke(value);
+    if (predValue != null && predValue != Boolean.FALSE) {
+      frame.cache.put(key, mask(value));
+    }
+    return value;
+  }
+
+  /**
+   * The last used frame is kept in a plain field, so that the calls from the
+   * same thread usually avoid the ThreadLocal lookup. A frame is only ever
+   * written there by its owner thread, so a frame read by its owner is
+   * always the current one.
+   */
+  private Frame current(Thread t) {
+    Frame frame = last;
+    if (frame != null && frame.owner == t) {
+      return frame;
+    }
+    frame = frames.get();
+    last = frame;
+    return frame;
+  }
+
+  private static final class Frame {
+
+    final Thread owner;
+
+    final Frame outer;
+
+    final Map<Object, Object> cache = new HashMap<Object, Object>();
+
+    Frame(Thread owner, Frame outer) {
+      this.owner = owner;
+      this.outer = outer;
+    }
+
+  }
+
+  /**
+   * Keys the calls of arities other than 1 and 2, so that they never equal a
+   * single seq argument.
+   */
+  private static final class ArgsKey {
+
+    final ISeq args;
+
+    ArgsKey(ISeq args) {
+      this.args = args;
+    }
+
+    @Override
+    public int hashCode() {
+      return Util.hash(args);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof ArgsKey && Util.equals(args, ((ArgsKey) obj).args);
+    }
+
+  }
+
+  private static Object mask(Object obj) {
+    return obj == null ? NIL : obj;
+  }
+
+  private static Object unmask(Object obj) {
+    return obj == NIL ? null : obj;
+  }
+
+  private static final Object NIL = new Object();
+
+  private final IFn f;
+
+  private final IFn pred;
+
+  private final ThreadLocal<Frame> frames = new ThreadLocal<Frame>();
+
+  private Frame last;
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import clojure.lang.IFn;
+
+/**
+ * The classic Memo storage: a HashMap guarded by a single monitor. The
+ * computation runs outside the monitor, so concurrent misses on the same key
+ * may call f more than once.
+ */
+public final class SynchronizedMemoCache implements MemoCache {
+
+  @Override
+  public Object lookup(Object key, Memo memo) {
+    synchronized (this) {
+      if (map.containsKey(key)) {
+        memo.countCacheHit();
+        return map.get(key);
+      }
+    }
+
+    long start = memo.clock();
+    Object value = memo.compute(key);
+    if (memo.admits(key, value, start)) {
+      synchronized (this) {
+        map.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized void put(Object key, Object value, Memo memo) {
+    map.put(key, value);
+  }
+
+  @Override
+  public void forEachEntry(IFn f) {
+    Object[] entries;
+    synchronized (this) {
+      entries = map.entrySet().toArray();
+    }
+    for (Object e : entries) {
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>) e;
+      f.invoke(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public synchronized boolean remove(Object key) {
+    return map.remove(key) != null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    map.clear();
+  }
+
+  @Override
+  public synchronized int size() {
+    return map.size();
+  }
+
+  private final Map<Object, Object> map = new HashMap<Object, Object>();
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A UTF-8 codec working on preallocated arrays and buffers. The encoded
+ * length is computed upfront (@see #encodedLength(CharSequence)), so the
+ * encoding never resizes anything. The decoding goes from any offset and
+ * length of an array or a ByteBuffer, skipping the ASCII runs 8 bytes at a
+ * time.
+ *
+ * <p>
+ * Like String.getBytes("UTF-8"), the unpaired surrogates are encoded as '?'.
+ * Like new String(b, "UTF-8"), every maximal subpart of an ill-formed
+ * sequence (a truncated sequence, an overlong form, a surrogate, a code point
+ * above U+10FFFF or a stray byte) is decoded as a single U+FFFD.
+ */
+public final class Utf8 {
+
+  public static int encodedLength(CharSequence s) {
+    int n = s.length();
+    int len = n;
+    int i = 0;
+    while (i < n && s.charAt(i) < 0x80) {
+      i++;
+    }
+    for (; i < n; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        len += 1;
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < n
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        len += 2; // 4 BYTES FOR 2 CHARS
+        i++;
+      }
+      else if (Character.isSurrogate(c)) {
+        ; // '?'
+      }
+      else {
+        len += 2;
+      }
+    }
+    return len;
+  }
+
+  public static byte[] encode(CharSequence s) {
+    byte[] result = new byte[encodedLength(s)];
+    encode(s, result, 0);
+    return result;
+  }
+
+  /**
+   * Encodes s into b starting at off. Returns the number of bytes written.
+   * The array must have room for encodedLength(s) bytes.
+   */
+  public static int encode(CharSequence s, byte[] b, int off) {
+    int start = off;
+    int n = s.length();
+    int i = 0;
+    for (char c; i < n && (c = s.charAt(i)) < 0x80; i++) {
+      b[off++] = (byte) c;
+    }
+    for (; i < n; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        b[off++] = (byte) c;
+      }
+      else if (c < 0x800) {
+        b[off++] = (byte) (0xC0 | (c >>> 6));
+        b[off++] = (byte) (0x80 | (c & 0x3F));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < n
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        b[off++] = (byte) (0xF0 | (cp >>> 18));
+        b[off++] = (byte) (0x80 | ((cp >>> 12) & 0x3F));
+        b[off++] = (byte) (0x80 | ((cp >>> 6) & 0x3F));
+        b[off++] = (byte) (0x80 | (cp & 0x3F));
+      }
+      else if (Character.isSurrogate(c)) {
+        b[off++] = '?';
+      }
+      else {
+        b[off++] = (byte) (0xE0 | (c >>> 12));
+        b[off++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+        b[off++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return off - start;
+  }
+
+  /**
+   * Encodes s into the buffer at its position, advancing the position.
+   * Returns the number of bytes written.
+   */
+  public static int encode(CharSequence s, ByteBuffer buf) {
+    return encode(s, encodedLength(s), buf);
+  }
+
+  /**
+   * Works like encode(s, buf) for len being encodedLength(s) known already.
+   */
+  public static int encode(CharSequence s, int len, ByteBuffer buf) {
+    if (buf.remaining() < len) {
+      throw new BufferOverflowException();
+    }
+    int pos = buf.position();
+    if (buf.hasArray()) {
+      encode(s, buf.array(), buf.arrayOffset() + pos);
+    }
+    else {
+      encodeDirect(s, buf, pos);
+    }
+    buf.position(pos + len);
+    return len;
+  }
+
+  /**
+   * The encode(s, b, off) loop with absolute puts, for the direct buffers.
+   */
+  private static void encodeDirect(CharSequence s, ByteBuffer buf, int off) {
+    int n = s.length();
+    for (int i = 0; i < n; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        buf.put(off++, (byte) c);
+      }
+      else if (c < 0x800) {
+        buf.put(off++, (byte) (0xC0 | (c >>> 6)));
+        buf.put(off++, (byte) (0x80 | (c & 0x3F)));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < n
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        buf.put(off++, (byte) (0xF0 | (cp >>> 18)));
+        buf.put(off++, (byte) (0x80 | ((cp >>> 12) & 0x3F)));
+        buf.put(off++, (byte) (0x80 | ((cp >>> 6) & 0x3F)));
+        buf.put(off++, (byte) (0x80 | (cp & 0x3F)));
+      }
+      else if (Character.isSurrogate(c)) {
+        buf.put(off++, (byte) '?');
+      }
+      else {
+        buf.put(off++, (byte) (0xE0 | (c >>> 12)));
+        buf.put(off++, (byte) (0x80 | ((c >>> 6) & 0x3F)));
+        buf.put(off++, (byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  public static String decode(byte[] b) {
+    return decode(b, 0, b.length);
+  }
+
+  public static String decode(byte[] b, int off, int len) {
+    int end = off + len;
+    int ascii = asciiPrefix(b, off, end);
+    char[] chars = new char[len];
+    for (int i = 0; i < ascii; i++) {
+      chars[i] = (char) b[off + i];
+    }
+    if (ascii == len) {
+      return new String(chars);
+    }
+    int n = decodeRest(b, off + ascii, end, chars, ascii);
+    return new String(chars, 0, n);
+  }
+
+  /**
+   * Decodes len bytes of the buffer at index (absolute). Doesn't change the
+   * position of the buffer.
+   */
+  public static String decode(ByteBuffer buf, int index, int len) {
+    if (buf.hasArray()) {
+      return decode(buf.array(), buf.arrayOffset() + index, len);
+    }
+    char[] chars = new char[len];
+    int i = 0;
+    while (i < len) {
+      byte x = buf.get(index + i);
+      if (x < 0) {
+        break;
+      }
+      chars[i++] = (char) x;
+    }
+    if (i == len) {
+      return new String(chars);
+    }
+    int n = decodeRest(buf, index + i, index + len, chars, i);
+    return new String(chars, 0, n);
+  }
+
+  /**
+   * Returns the length of the ASCII prefix of b[off, end).
+   */
+  private static int asciiPrefix(byte[] b, int off, int end) {
+    int i = off;
+    if (end - off >= 8) {
+      ByteBuffer words = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+      while (i + 8 <= end
+          && (words.getLong(i) & 0x8080808080808080L) == 0) {
+        i += 8;
+      }
+    }
+    while (i < end && b[i] >= 0) {
+      i++;
+    }
+    return i - off;
+  }
+
+  private static int decodeRest(byte[] b, int i, int end, char[] chars, int n) {
+    while (i < end) {
+      int x = b[i] & 0xFF;
+      if (x < 0x80) {
+        chars[n++] = (char) x;
+        i++;
+        continue;
+      }
+
+      int need = continuations(x);
+      int cp = x & (0x3F >>> need);
+      int k = 1;
+      while (k <= need && i + k < end && isContinuation(x, k, b[i + k])) {
+        cp = (cp << 6) | (b[i + k] & 0x3F);
+        k++;
+      }
+      n = put(need > 0 && k > need ? cp : -1, chars, n);
+      i += k;
+    }
+    return n;
+  }
+
+  /**
+   * The decodeRest(b, ...) loop with absolute gets, for the direct buffers.
+   */
+  private static int decodeRest(ByteBuffer buf, int i, int end, char[] chars,
+      int n) {
+    while (i < end) {
+      int x = buf.get(i) & 0xFF;
+      if (x < 0x80) {
+        chars[n++] = (char) x;
+        i++;
+        continue;
+      }
+
+      int need = continuations(x);
+      int cp = x & (0x3F >>> need);
+      int k = 1;
+      while (k <= need && i + k < end && isContinuation(x, k, buf.get(i + k))) {
+        cp = (cp << 6) | (buf.get(i + k) & 0x3F);
+        k++;
+      }
+      n = put(need > 0 && k > need ? cp : -1, chars, n);
+      i += k;
+    }
+    return n;
+  }
+
+  /**
+   * Returns the number of the continuation bytes after the lead byte x, 0 for
+   * the bytes that can't start a sequence (continuations, the overlong C0, C1
+   * and F5-FF above U+10FFFF).
+   */
+  private static int continuations(int x) {
+    if (x >= 0xC2 && x <= 0xDF) {
+      return 1;
+    }
+    if (x >= 0xE0 && x <= 0xEF) {
+      return 2;
+    }
+    if (x >= 0xF0 && x <= 0xF4) {
+      return 3;
+    }
+    return 0;
+  }
+
+  /**
+   * Tells whether y is a legal k-th byte of the sequence led by x. The second
+   * byte rules out the overlong forms (E0, F0) and the code points above
+   * U+10FFFF led by F4.
+   */
+  private static boolean isContinuation(int x, int k, byte y) {
+    int v = y & 0xFF;
+    if (k > 1) {
+      return v >= 0x80 && v <= 0xBF;
+    }
+    switch (x) {
+    case 0xE0:
+      return v >= 0xA0 && v <= 0xBF;
+    case 0xF0:
+      return v >= 0x90 && v <= 0xBF;
+    case 0xF4:
+      return v >= 0x80 && v <= 0x8F;
+    default:
+      return v >= 0x80 && v <= 0xBF;
+    }
+  }
+
+  /**
+   * Puts the code point, or U+FFFD when cp is negative (an incomplete
+   * sequence) or a surrogate.
+   */
+  private static int put(int cp, char[] chars, int n) {
+    if (cp < 0
+        || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+      chars[n++] = REPLACEMENT;
+    }
+    else if (cp >= 0x10000) {
+      chars[n++] = Character.highSurrogate(cp);
+      chars[n++] = Character.lowSurrogate(cp);
+    }
+    else {
+      chars[n++] = (char) cp;
+    }
+    return n;
+  }
+
+  private static final char REPLACEMENT = '\uFFFD';
+
+  private Utf8() {
+    ;
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core.eseq;
+
+import clojure.lang.ASeq;
+import clojure.lang.IFn;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.Obj;
+import clojure.lang.PersistentList;
+import clojure.lang.RT;
+
+/**
+ * An enhanced seq of doubles backed by a double[] (not copied) or by a
+ * function of the index (an IFn$LD preferably). The elements get boxed only
+ * when accessed through the seq or the Object API.
+ */
+public final class DoubleESeq extends ESeq implements IDoubleESeq {
+
+  public static DoubleESeq of(double[] values) {
+    return new DoubleESeq(values, null, values.length);
+  }
+
+  public static DoubleESeq of(IFn f, long len) {
+    if (len < 0) {
+      throw new IllegalArgumentException("Illegal len " + len);
+    }
+    return new DoubleESeq(null, f, len);
+  }
+
+  private DoubleESeq(double[] values, IFn f, long len) {
+    super(len == 0 ? PersistentList.EMPTY : new Seq(null, values, f, 0, len));
+    this.values = values;
+    this.f = f;
+    this.len = len;
+  }
+
+  @Override
+  public long lenLong() {
+    return len;
+  }
+
+  @Override
+  public double enthDouble(long n) {
+    if (n < 0 || n >= len) {
+      throw new IndexOutOfBoundsException("Index " + n + ", len " + len);
+    }
+    return at(values, f, n);
+  }
+
+  @Override
+  public Number len() {
+    return len;
+  }
+
+  @Override
+  public Object enth(Number n) {
+    return enthDouble(RT.longCast(n));
+  }
+
+  @Override
+  boolean isRandomAccess() {
+    return true;
+  }
+
+  private static double at(double[] values, IFn f, long n) {
+    if (values != null) {
+      return values[(int) n];
+    }
+    if (f instanceof IFn.LD) {
+      return ((IFn.LD) f).invokePrim(n);
+    }
+    return RT.doubleCast(f.invoke(n));
+  }
+
+  private static final class Seq extends ASeq {
+
+    Seq(IPersistentMap meta, double[] values, IFn f, long i, long len) {
+      super(meta);
+      this.values = values;
+      this.f = f;
+      this.i = i;
+      this.len = len;
+    }
+
+    @Override
+    public Object first() {
+      return at(values, f, i);
+    }
+
+    @Override
+    public ISeq next() {
+      return i + 1 < len ? new Seq(null, values, f, i + 1, len) : null;
+    }
+
+    @Override
+    public int count() {
+      return RT.intCast(len - i);
+    }
+
+    @Override
+    public Obj withMeta(IPersistentMap meta) {
+      return new Seq(meta, values, f, i, len);
+    }
+
+    private final double[] values;
+
+    private final IFn f;
+
+    private final long i;
+
+    private final long len;
+
+  }
+
+  private final double[] values;
+
+  private final IFn f;
+
+  private final long len;
+
+}
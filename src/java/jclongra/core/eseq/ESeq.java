@@ -8,9 +8,12 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
 
 import jclongra.core.Proxies;
 import jclongra.math.Infinity;
+import clojure.lang.BigInt;
 import clojure.lang.IFn;
 import clojure.lang.IPersistentCollection;
 import clojure.lang.ISeq;
@@ -36,6 +39,11 @@ public abstract class ESeq implements List, IEnhancedSeq {
       public Object enth(Number n) {
         return enth.invoke(n);
       }
+
+      @Override
+      boolean isRandomAccess() {
+        return true;
+      }
     };
   }
 
@@ -55,8 +63,61 @@ public abstract class ESeq implements List, IEnhancedSeq {
     return RT.nth(origin, RT.intCast(n));
   }
 
+  /**
+   * Tells whether this eseq may be split into enth ranges, i.e. it is finite
+   * (within long) and its enth takes (close to) constant time, like the
+   * eseqs with the enth given explicitly.
+   */
+  public final boolean isSplittable() {
+    return splitLen() >= 0;
+  }
+
+  /**
+   * Returns a Spliterator partitioning the enth ranges when isSplittable(),
+   * the one of the List view otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public final Spliterator<Object> spliterator() {
+    long n = splitLen();
+    if (n < 0) {
+      return List.super.spliterator();
+    }
+    return new ESeqSpliterator(this, 0, n);
+  }
+
+  boolean isRandomAccess() {
+    if (origin instanceof ESeq) {
+      return ((ESeq) origin).isRandomAccess();
+    }
+    return origin instanceof RandomAccess;
+  }
+
+  /**
+   * Returns the len when this eseq is splittable, -1 otherwise.
+   */
+  final long splitLen() {
+    if (!isRandomAccess()) {
+      return -1;
+    }
+    if (this instanceof IPrimitiveESeq) {
+      return ((IPrimitiveESeq) this).lenLong();
+    }
+    Number n = len();
+    if (n instanceof Long || n instanceof Integer) {
+      return n.longValue();
+    }
+    if (n instanceof BigInt && ((BigInt) n).bipart == null) {
+      return ((BigInt) n).lpart;
+    }
+    return -1;
+  }
+
   @Override
   public final int count() {
+    if (this instanceof IPrimitiveESeq) {
+      return RT.intCast(((IPrimitiveESeq) this).lenLong());
+    }
     return RT.intCast(len());
   }
 
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core.eseq;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import clojure.lang.IFn;
+import clojure.lang.RT;
+import clojure.lang.Reduced;
+
+/**
+ * The fork/join reduction of a splittable eseq (@see ESeq#isSplittable()),
+ * the way clojure.core.reducers/fold does it for vectors: the enth ranges of
+ * up to n elements get reduced with reducef starting from (combinef), the
+ * results of the halves get joined with combinef. A reduced value ends the
+ * reduction of its range only.
+ */
+public final class ESeqFold extends RecursiveTask<Object> {
+
+  public static Object fold(ESeq coll, long n, IFn combinef, IFn reducef) {
+    long len = coll.splitLen();
+    if (len < 0) {
+      throw new IllegalArgumentException("Not a splittable eseq.");
+    }
+    ESeqFold task = new ESeqFold(coll, 0, len, Math.max(n, 1), combinef,
+        reducef);
+    if (ForkJoinTask.inForkJoinPool()) {
+      return task.invoke();
+    }
+    return ForkJoinPool.commonPool().invoke(task);
+  }
+
+  private ESeqFold(ESeq coll, long start, long end, long n, IFn combinef,
+      IFn reducef) {
+    this.coll = coll;
+    this.start = start;
+    this.end = end;
+    this.n = n;
+    this.combinef = combinef;
+    this.reducef = reducef;
+  }
+
+  @Override
+  protected Object compute() {
+    if (end - start <= n) {
+      Object acc = combinef.invoke();
+      for (long i = start; i < end; i++) {
+        acc = reducef.invoke(acc, coll.enth(i));
+        if (RT.isReduced(acc)) {
+          return ((Reduced) acc).deref();
+        }
+      }
+      return acc;
+    }
+
+    long mid = (start + end) >>> 1;
+    ESeqFold right = new ESeqFold(coll, mid, end, n, combinef, reducef);
+    right.fork();
+    Object left = new ESeqFold(coll, start, mid, n, combinef, reducef)
+        .compute();
+    return combinef.invoke(left, right.join());
+  }
+
+  private static final long serialVersionUID = 1L;
+
+  private final ESeq coll;
+
+  private final long start;
+
+  private final long end;
+
+  private final long n;
+
+  private final IFn combinef;
+
+  private final IFn reducef;
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core.eseq;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator of the elements of an eseq in the enth range [from, to),
+ * splitting it in halves.
+ */
+final class ESeqSpliterator implements Spliterator<Object> {
+
+  ESeqSpliterator(IEnhancedSeq coll, long from, long to) {
+    this.coll = coll;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Object> action) {
+    if (from >= to) {
+      return false;
+    }
+    action.accept(coll.enth(from++));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Object> action) {
+    long i = from;
+    from = to;
+    for (; i < to; i++) {
+      action.accept(coll.enth(i));
+    }
+  }
+
+  @Override
+  public Spliterator<Object> trySplit() {
+    long mid = (from + to) >>> 1;
+    if (mid <= from) {
+      return null;
+    }
+    Spliterator<Object> prefix = new ESeqSpliterator(coll, from, mid);
+    from = mid;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return to - from;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+  }
+
+  private final IEnhancedSeq coll;
+
+  private long from;
+
+  private final long to;
+
+}
@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core.eseq;
+
+public interface ILongESeq extends IPrimitiveESeq {
+
+  long enthLong(long n);
+
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.core.eseq;
+
+/**
+ * An enhanced seq of primitive elements, with a finite long length.
+ */
+public interface IPrimitiveESeq extends IEnhancedSeq {
+
+  long lenLong();
+
+}
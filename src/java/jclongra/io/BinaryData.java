@@ -0,0 +1,585 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jclongra.StateError;
+import jclongra.TypeError;
+import jclongra.core.Bits;
+import jclongra.core.BufferPool;
+import jclongra.core.ByteSink;
+import jclongra.core.Utf8;
+import clojure.lang.IFn;
+import clojure.lang.IPersistentMap;
+import clojure.lang.IPersistentSet;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ISeq;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentList;
+import clojure.lang.PersistentVector;
+import clojure.lang.RT;
+import clojure.lang.Sequential;
+import clojure.lang.Symbol;
+
+/**
+ * A tagged binary format for the Clojure data: nil, booleans, longs,
+ * doubles, strings, byte arrays, keywords, symbols, vectors, maps, sets and
+ * seqs, nested arbitrarily. Every other value is a leaf written with the
+ * converter registered for its class (usually with def-bytes-converters) and
+ * tagged with the type keyword of the converter, e.g. :big-int.
+ *
+ * <pre>
+ * value   := NIL | TRUE | FALSE
+ *          | LONG zigzag:varint | DOUBLE long (big-endian)
+ *          | STRING len:varint utf8 | BYTES len:varint byte{len}
+ *          | KEYWORD ref | SYMBOL ref
+ *          | VECTOR n:varint value{n} | SET n:varint value{n}
+ *          | MAP n:varint (value value){n} | SEQ value* END
+ *          | LEAF ref len:varint byte{len}
+ * ref     := 0:varint ns name | id+1:varint
+ * ns      := 0:varint | len+1:varint utf8
+ * </pre>
+ *
+ * The keywords, symbols and leaf types are written in full once per stream
+ * and referred to by their ids then. The reader resolves the leaf types with
+ * the registered converters only, it never loads a class named in the stream.
+ *
+ * <p>
+ * The seqs are written element by element, so a (lazy) seq of any length
+ * streams through a fixed size buffer. The streaming is write-side only: the
+ * reader returns every seq read in full, as a list. Both
+ * ends keep their own buffers (the writer's from BufferPool.HEAP, returned on
+ * close()); there's no need to wrap the streams.
+ */
+public final class BinaryData {
+
+  public static final class Writer implements Closeable, Flushable {
+
+    /**
+     * @param typeOf
+     *          returns the converter type keyword for a leaf class, nil when
+     *          the class is unsupported
+     * @param writerOf
+     *          returns the (writer sink value) for a type keyword
+     */
+    public Writer(OutputStream out, IFn typeOf, IFn writerOf) {
+      this.out = out;
+      this.typeOf = typeOf;
+      this.writerOf = writerOf;
+    }
+
+    public void write(Object value) throws IOException {
+      ensureOpen();
+      writeValue(value);
+      flushFull();
+    }
+
+    @Override
+    public void flush() throws IOException {
+      ensureOpen();
+      ByteBuffer b = buf.buffer();
+      out.write(b.array(), b.arrayOffset(), b.position());
+      buf.clear();
+      out.flush();
+    }
+
+    /**
+     * Flushes and closes the stream, returns the buffers to the pool.
+     * Closing more than once does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      try {
+        flush();
+      }
+      finally {
+        closed = true;
+        buf.close();
+        leaf.close();
+        out.close();
+      }
+    }
+
+    private void ensureOpen() {
+      if (closed) {
+        throw new StateError("The data writer is closed.");
+      }
+    }
+
+    private void writeValue(Object value) throws IOException {
+      if (value == null) {
+        tag(NIL);
+      }
+      else if (value instanceof Boolean) {
+        tag((Boolean) value ? TRUE : FALSE);
+      }
+      else if (value instanceof Long) {
+        tag(LONG);
+        varLong(Bits.zigZag((Long) value));
+      }
+      else if (value instanceof Double) {
+        buf.ensure(9).put(DOUBLE).putLong(
+            Double.doubleToLongBits((Double) value));
+      }
+      else if (value instanceof String) {
+        String s = (String) value;
+        int len = Utf8.encodedLength(s);
+        tag(STRING);
+        varLong(len);
+        Utf8.encode(s, buf.ensure(len));
+      }
+      else if (value instanceof byte[]) {
+        byte[] b = (byte[]) value;
+        tag(BYTES);
+        varLong(b.length);
+        buf.put(b, 0, b.length);
+      }
+      else if (value instanceof Keyword) {
+        tag(KEYWORD);
+        if (ref(value)) {
+          Symbol sym = ((Keyword) value).sym;
+          namespace(sym.getNamespace());
+          string(sym.getName());
+        }
+      }
+      else if (value instanceof Symbol) {
+        tag(SYMBOL);
+        if (ref(value)) {
+          Symbol sym = (Symbol) value;
+          namespace(sym.getNamespace());
+          string(sym.getName());
+        }
+      }
+      else if (value instanceof IPersistentMap) {
+        tag(MAP);
+        varLong(RT.count(value));
+        for (ISeq s = RT.seq(value); s != null; s = s.next()) {
+          Map.Entry<?, ?> e = (Map.Entry<?, ?>) s.first();
+          writeValue(e.getKey());
+          writeValue(e.getValue());
+          flushFull();
+        }
+      }
+      else if (value instanceof IPersistentVector) {
+        tag(VECTOR);
+        writeElements(value, RT.count(value));
+      }
+      else if (value instanceof IPersistentSet) {
+        tag(SET);
+        writeElements(value, RT.count(value));
+      }
+      else if (value instanceof Sequential || value instanceof ISeq) {
+        tag(SEQ);
+        for (ISeq s = RT.seq(value); s != null; s = s.next()) {
+          writeValue(s.first());
+          flushFull();
+        }
+        tag(END);
+      }
+      else {
+        writeLeaf(value);
+      }
+    }
+
+    private void writeElements(Object coll, int n) throws IOException {
+      varLong(n);
+      for (ISeq s = RT.seq(coll); s != null; s = s.next()) {
+        writeValue(s.first());
+        flushFull();
+      }
+    }
+
+    private void writeLeaf(Object value) throws IOException {
+      Class<?> c = value.getClass();
+      Keyword type = types.get(c);
+      if (type == null) {
+        type = (Keyword) typeOf.invoke(c);
+        if (type == null) {
+          throw new TypeError("No bytes converters for " + c);
+        }
+        types.put(c, type);
+      }
+      IFn writer = writers.get(type);
+      if (writer == null) {
+        writer = (IFn) writerOf.invoke(type);
+        writers.put(type, writer);
+      }
+      leaf.clear();
+      int len = RT.intCast(writer.invoke(leaf, value));
+      tag(LEAF);
+      if (ref(type)) {
+        namespace(type.sym.getNamespace());
+        string(type.sym.getName());
+      }
+      varLong(len);
+      ByteBuffer b = leaf.buffer();
+      buf.put(b.array(), b.arrayOffset(), len);
+    }
+
+    /**
+     * Writes the reference to the object. Returns true when it's new and
+     * must be written in full after the reference.
+     */
+    private boolean ref(Object obj) {
+      Integer id = refs.get(obj);
+      if (id != null) {
+        varLong(id + 1);
+        return false;
+      }
+      refs.put(obj, refs.size());
+      varLong(0);
+      return true;
+    }
+
+    private void namespace(String ns) {
+      if (ns == null) {
+        varLong(0);
+      }
+      else {
+        int len = Utf8.encodedLength(ns);
+        varLong(len + 1);
+        Utf8.encode(ns, buf.ensure(len));
+      }
+    }
+
+    private void string(String s) {
+      int len = Utf8.encodedLength(s);
+      varLong(len);
+      Utf8.encode(s, buf.ensure(len));
+    }
+
+    private void tag(byte tag) {
+      buf.ensure(1).put(tag);
+    }
+
+    private void varLong(long v) {
+      Bits.putVarLong(buf.ensure(10), v);
+    }
+
+    private void flushFull() throws IOException {
+      if (buf.position() >= BUFFER_SIZE) {
+        ByteBuffer b = buf.buffer();
+        out.write(b.array(), b.arrayOffset(), b.position());
+        buf.clear();
+      }
+    }
+
+    private final OutputStream out;
+
+    private final IFn typeOf;
+
+    private final IFn writerOf;
+
+    private final ByteSink buf =
+        ByteSink.pooled(BufferPool.HEAP, BUFFER_SIZE << 1);
+
+    private final ByteSink leaf = ByteSink.pooled(BufferPool.HEAP, 64);
+
+    private final Map<Object, Integer> refs = new HashMap<>();
+
+    private final Map<Class<?>, Keyword> types = new HashMap<>();
+
+    private final Map<Keyword, IFn> writers = new HashMap<>();
+
+    private boolean closed;
+
+  }
+
+  public static final class Reader implements Closeable {
+
+    /**
+     * @param readerOf
+     *          returns the (reader buf offset len) for a type keyword
+     */
+    public Reader(InputStream in, IFn readerOf) {
+      this.in = in;
+      this.readerOf = readerOf;
+    }
+
+    /**
+     * Returns the next value of the stream, eof when the stream ends.
+     */
+    public Object read(Object eof) throws IOException {
+      if (!fill(1)) {
+        return eof;
+      }
+      return readValue(b[pos++]);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    private Object readValue(byte tag) throws IOException {
+      switch (tag) {
+      case NIL:
+        return null;
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case LONG:
+        return Bits.unZigZag(varLong());
+      case DOUBLE:
+        need(8);
+        pos += 8;
+        return Bits.getDouble(b, pos - 8);
+      case STRING: {
+        int len = length();
+        need(len);
+        pos += len;
+        return Utf8.decode(b, pos - len, len);
+      }
+      case BYTES: {
+        int len = length();
+        need(len);
+        byte[] result = new byte[len];
+        System.arraycopy(b, pos, result, 0, len);
+        pos += len;
+        return result;
+      }
+      case KEYWORD: {
+        Object k = ref();
+        if (k == null) {
+          k = Keyword.intern(symbol());
+          refs.add(k);
+        }
+        return k;
+      }
+      case SYMBOL: {
+        Object s = ref();
+        if (s == null) {
+          s = symbol();
+          refs.add(s);
+        }
+        return s;
+      }
+      case VECTOR: {
+        int n = length();
+        ITransientCollection v = PersistentVector.EMPTY.asTransient();
+        for (int i = 0; i < n; i++) {
+          v = v.conj(next());
+        }
+        return v.persistent();
+      }
+      case SET: {
+        int n = length();
+        ITransientCollection s = PersistentHashSet.EMPTY.asTransient();
+        for (int i = 0; i < n; i++) {
+          s = s.conj(next());
+        }
+        return s.persistent();
+      }
+      case MAP: {
+        int n = length();
+        ITransientMap m = PersistentArrayMap.EMPTY.asTransient();
+        for (int i = 0; i < n; i++) {
+          Object k = next();
+          m = m.assoc(k, next());
+        }
+        return m.persistent();
+      }
+      case SEQ: {
+        List<Object> elements = new ArrayList<>();
+        for (byte t; (t = nextTag()) != END;) {
+          elements.add(readValue(t));
+        }
+        return PersistentList.create(elements);
+      }
+      case LEAF:
+        return readLeaf();
+      default:
+        throw new StateError("Illegal tag " + tag);
+      }
+    }
+
+    private Object readLeaf() throws IOException {
+      Object type = ref();
+      if (type == null) {
+        type = Keyword.intern(symbol());
+        refs.add(type);
+      }
+      IFn reader = readers.get(type);
+      if (reader == null) {
+        reader = (IFn) readerOf.invoke(type);
+        readers.put(type, reader);
+      }
+      int len = length();
+      need(len);
+      pos += len;
+      return reader.invoke(ByteBuffer.wrap(b), (long) (pos - len), (long) len);
+    }
+
+    private Object next() throws IOException {
+      return readValue(nextTag());
+    }
+
+    private byte nextTag() throws IOException {
+      need(1);
+      return b[pos++];
+    }
+
+    /**
+     * Returns the referred object, null when a new one follows.
+     */
+    private Object ref() throws IOException {
+      int id = length();
+      if (id == 0) {
+        return null;
+      }
+      if (id > refs.size()) {
+        throw new StateError("Illegal reference " + (id - 1));
+      }
+      return refs.get(id - 1);
+    }
+
+    private Symbol symbol() throws IOException {
+      int nslen = length();
+      String ns = null;
+      if (nslen != 0) {
+        need(nslen - 1);
+        ns = Utf8.decode(b, pos, nslen - 1);
+        pos += nslen - 1;
+      }
+      return Symbol.intern(ns, string());
+    }
+
+    private String string() throws IOException {
+      int len = length();
+      need(len);
+      pos += len;
+      return Utf8.decode(b, pos - len, len);
+    }
+
+    private int length() throws IOException {
+      long len = varLong();
+      if (len < 0 || len > Integer.MAX_VALUE) {
+        throw new StateError("Illegal length " + len);
+      }
+      return (int) len;
+    }
+
+    private long varLong() throws IOException {
+      long v = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte x = nextTag();
+        v |= (long) (x & 0x7F) << shift;
+        if (x >= 0) {
+          return v;
+        }
+      }
+      throw new StateError("Malformed varint");
+    }
+
+    private void need(int n) throws IOException {
+      if (!fill(n)) {
+        throw new EOFException("Unexpected end of the data.");
+      }
+    }
+
+    /**
+     * Makes n bytes available at pos. Returns false on the end of the stream
+     * before any byte has been read.
+     */
+    private boolean fill(int n) throws IOException {
+      if (limit - pos >= n) {
+        return true;
+      }
+      int avail = limit - pos;
+      if (n > b.length) {
+        byte[] bigger = new byte[Math.max(n, b.length << 1)];
+        System.arraycopy(b, pos, bigger, 0, avail);
+        b = bigger;
+      }
+      else {
+        System.arraycopy(b, pos, b, 0, avail);
+      }
+      pos = 0;
+      limit = avail;
+      while (limit < n) {
+        int r = in.read(b, limit, b.length - limit);
+        if (r < 0) {
+          if (limit == 0) {
+            return false;
+          }
+          throw new EOFException("Unexpected end of the data.");
+        }
+        limit += r;
+      }
+      return true;
+    }
+
+    private final InputStream in;
+
+    private final IFn readerOf;
+
+    private final List<Object> refs = new ArrayList<>();
+
+    private final Map<Object, IFn> readers = new HashMap<>();
+
+    private byte[] b = new byte[BUFFER_SIZE];
+
+    private int pos;
+
+    private int limit;
+
+  }
+
+  private static final byte NIL = 0;
+
+  private static final byte TRUE = 1;
+
+  private static final byte FALSE = 2;
+
+  private static final byte LONG = 3;
+
+  private static final byte DOUBLE = 4;
+
+  private static final byte STRING = 5;
+
+  private static final byte BYTES = 6;
+
+  private static final byte KEYWORD = 7;
+
+  private static final byte SYMBOL = 8;
+
+  private static final byte VECTOR = 9;
+
+  private static final byte SET = 10;
+
+  private static final byte MAP = 11;
+
+  private static final byte SEQ = 12;
+
+  private static final byte END = 13;
+
+  private static final byte LEAF = 14;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private BinaryData() {
+    ;
+  }
+
+}
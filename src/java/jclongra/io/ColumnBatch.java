@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jclongra.TypeError;
+import jclongra.core.BitPacking;
+import jclongra.core.Bits;
+import jclongra.core.ByteSink;
+import jclongra.core.Utf8;
+
+/**
+ * A columnar batch of rows: every column is stored separately, with the
+ * encoding for its type. The directory at the front keeps the name, encoding
+ * and size of every column, so a single column gets decoded without touching
+ * the others.
+ *
+ * <pre>
+ * batch   := MAGIC:int rows:varint n:varint dir{n} column{n}
+ * dir     := len:varint name:byte{len} encoding:byte size:varint
+ * LONGS   := BitPacking (FOR, or delta when non-decreasing)
+ * DOUBLES := long{rows} (big-endian)
+ * STRINGS := d:varint (len:varint utf8){d} codes:BitPacking
+ * VALUES  := (len:varint byte{len}){rows}
+ * </pre>
+ *
+ * The names and VALUES are opaque bytes (written by the caller). The string
+ * codes are 0 for null and i+1 for the i-th dictionary entry, in the order of
+ * the first occurrences.
+ */
+public final class ColumnBatch {
+
+  public static final byte LONGS = 0;
+
+  public static final byte DOUBLES = 1;
+
+  public static final byte STRINGS = 2;
+
+  public static final byte VALUES = 3;
+
+  public static final class Builder {
+
+    public Builder(int rows) {
+      if (rows < 0) {
+        throw new IllegalArgumentException("Illegal rows count " + rows);
+      }
+      this.rows = rows;
+    }
+
+    public Builder longs(byte[] name, long[] values) {
+      checkRows(values.length);
+      boolean sorted = true;
+      for (int i = 1; i < values.length && sorted; i++) {
+        sorted = values[i - 1] <= values[i];
+      }
+      return add(name, LONGS, BitPacking.packLongs(values, sorted));
+    }
+
+    public Builder doubles(byte[] name, double[] values) {
+      checkRows(values.length);
+      ByteBuffer buf = ByteBuffer.allocate(8 * values.length);
+      buf.asDoubleBuffer().put(values);
+      return add(name, DOUBLES, buf.array());
+    }
+
+    public Builder strings(byte[] name, String[] values) {
+      checkRows(values.length);
+      Map<String, Integer> dict = new HashMap<>();
+      List<String> entries = new ArrayList<>();
+      int[] codes = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        String s = values[i];
+        if (s != null) {
+          Integer code = dict.get(s);
+          if (code == null) {
+            entries.add(s);
+            code = entries.size();
+            dict.put(s, code);
+          }
+          codes[i] = code;
+        }
+      }
+
+      try (ByteSink sink = ByteSink.growable(64, false)) {
+        Bits.putVarLong(sink.ensure(10), entries.size());
+        for (String s : entries) {
+          int len = Utf8.encodedLength(s);
+          Bits.putVarLong(sink.ensure(10), len);
+          Utf8.encode(s, sink.ensure(len));
+        }
+        byte[] packed = BitPacking.packInts(codes, false);
+        sink.put(packed, 0, packed.length);
+        return add(name, STRINGS, sink.toByteArray());
+      }
+    }
+
+    public Builder values(byte[] name, byte[][] values) {
+      checkRows(values.length);
+      try (ByteSink sink = ByteSink.growable(64, false)) {
+        for (byte[] b : values) {
+          Bits.putVarLong(sink.ensure(10), b.length);
+          sink.put(b, 0, b.length);
+        }
+        return add(name, VALUES, sink.toByteArray());
+      }
+    }
+
+    public byte[] toBytes() {
+      try (ByteSink sink = ByteSink.growable(256, false)) {
+        sink.ensure(4).putInt(MAGIC);
+        Bits.putVarLong(sink.ensure(10), rows);
+        Bits.putVarLong(sink.ensure(10), names.size());
+        for (int i = 0; i < names.size(); i++) {
+          byte[] name = names.get(i);
+          Bits.putVarLong(sink.ensure(10), name.length);
+          sink.put(name, 0, name.length);
+          sink.ensure(1).put(encodings.get(i));
+          Bits.putVarLong(sink.ensure(10), columns.get(i).length);
+        }
+        for (byte[] column : columns) {
+          sink.put(column, 0, column.length);
+        }
+        return sink.toByteArray();
+      }
+    }
+
+    private Builder add(byte[] name, byte encoding, byte[] column) {
+      names.add(name);
+      encodings.add(encoding);
+      columns.add(column);
+      return this;
+    }
+
+    private void checkRows(int n) {
+      if (n != rows) {
+        throw new IllegalArgumentException("Column of " + n + " values in a "
+            + "batch of " + rows + " rows");
+      }
+    }
+
+    private final int rows;
+
+    private final List<byte[]> names = new ArrayList<>();
+
+    private final List<Byte> encodings = new ArrayList<>();
+
+    private final List<byte[]> columns = new ArrayList<>();
+
+  }
+
+  /**
+   * Reads the directory of the batch in b[off, off + len). The columns get
+   * decoded on demand.
+   */
+  public static ColumnBatch read(byte[] b, int off, int len) {
+    ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+    if (len < 4 || buf.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a column batch.");
+    }
+    long rows = Bits.getVarLong(buf);
+    long n = Bits.getVarLong(buf);
+    if (rows > Integer.MAX_VALUE || n > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Malformed column batch.");
+    }
+
+    byte[][] names = new byte[(int) n][];
+    byte[] encodings = new byte[(int) n];
+    int[] sizes = new int[(int) n];
+    for (int i = 0; i < n; i++) {
+      names[i] = new byte[(int) Bits.getVarLong(buf)];
+      buf.get(names[i]);
+      encodings[i] = buf.get();
+      sizes[i] = (int) Bits.getVarLong(buf);
+    }
+
+    int[] offsets = new int[(int) n];
+    int pos = buf.position();
+    for (int i = 0; i < n; i++) {
+      offsets[i] = pos;
+      pos += sizes[i];
+    }
+    if (pos > off + len) {
+      throw new IllegalArgumentException("Malformed column batch.");
+    }
+    return new ColumnBatch(b, (int) rows, names, encodings, offsets, sizes);
+  }
+
+  private ColumnBatch(byte[] b, int rows, byte[][] names, byte[] encodings,
+      int[] offsets, int[] sizes) {
+    this.b = b;
+    this.rows = rows;
+    this.names = names;
+    this.encodings = encodings;
+    this.offsets = offsets;
+    this.sizes = sizes;
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int columnsCount() {
+    return names.length;
+  }
+
+  public byte[] name(int i) {
+    return names[i].clone();
+  }
+
+  public byte encoding(int i) {
+    return encodings[i];
+  }
+
+  public long[] longs(int i) {
+    checkEncoding(i, LONGS);
+    return BitPacking.unpackLongs(b, offsets[i], sizes[i]);
+  }
+
+  public double[] doubles(int i) {
+    checkEncoding(i, DOUBLES);
+    double[] result = new double[rows];
+    ByteBuffer.wrap(b, offsets[i], sizes[i]).asDoubleBuffer().get(result);
+    return result;
+  }
+
+  public String[] strings(int i) {
+    checkEncoding(i, STRINGS);
+    ByteBuffer buf = ByteBuffer.wrap(b, offsets[i], sizes[i]);
+    String[] dict = new String[(int) Bits.getVarLong(buf) + 1];
+    for (int j = 1; j < dict.length; j++) {
+      int len = (int) Bits.getVarLong(buf);
+      dict[j] = Utf8.decode(buf, buf.position(), len);
+      buf.position(buf.position() + len);
+    }
+
+    int pos = buf.position();
+    int[] codes = BitPacking.unpackInts(b, pos, offsets[i] + sizes[i] - pos);
+    String[] result = new String[codes.length];
+    for (int j = 0; j < codes.length; j++) {
+      result[j] = dict[codes[j]];
+    }
+    return result;
+  }
+
+  public byte[][] values(int i) {
+    checkEncoding(i, VALUES);
+    ByteBuffer buf = ByteBuffer.wrap(b, offsets[i], sizes[i]);
+    byte[][] result = new byte[rows][];
+    for (int j = 0; j < rows; j++) {
+      result[j] = new byte[(int) Bits.getVarLong(buf)];
+      buf.get(result[j]);
+    }
+    return result;
+  }
+
+  private void checkEncoding(int i, byte encoding) {
+    if (encodings[i] != encoding) {
+      throw new TypeError("Column " + i + " has the encoding " + encodings[i]
+          + ", not " + encoding);
+    }
+  }
+
+  private static final int MAGIC = 0x434F4C42; // COLB
+
+  private final byte[] b;
+
+  private final int rows;
+
+  private final byte[][] names;
+
+  private final byte[] encodings;
+
+  private final int[] offsets;
+
+  private final int[] sizes;
+
+}
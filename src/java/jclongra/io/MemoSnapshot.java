@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import jclongra.StateError;
+import jclongra.core.Memo;
+import jclongra.core.Pair;
+import clojure.lang.AFn;
+import clojure.lang.ArraySeq;
+import clojure.lang.IFn;
+import clojure.lang.ISeq;
+import clojure.lang.RT;
+import clojure.lang.Util;
+
+/**
+ * A streaming binary format for the Memo caches. Every argument and every
+ * value is turned into bytes with the passed converters (usually the ones
+ * registered with def-bytes-converters).
+ *
+ * <pre>
+ * snapshot := MAGIC:int VERSION:int entry* -1:int
+ * entry    := argc:int (len:int byte[len]){argc} len:int byte[len]
+ * </pre>
+ */
+public final class MemoSnapshot {
+
+  /**
+   * Writes all the entries of the memo to the stream. Returns the number of
+   * entries written. Does not close the stream.
+   */
+  public static long write(Memo memo, final IFn keyToBytes,
+      final IFn valueToBytes, OutputStream out) throws IOException {
+    final DataOutputStream data =
+        new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+
+    final long[] n = new long[1];
+    memo.forEachEntry(new AFn() {
+      @Override
+      public Object invoke(Object args, Object value) {
+        try {
+          data.writeInt(RT.count(args));
+          for (ISeq s = RT.seq(args); s != null; s = s.next()) {
+            writeBytes(data, (byte[]) keyToBytes.invoke(s.first()));
+          }
+          writeBytes(data, (byte[]) valueToBytes.invoke(value));
+        }
+        catch (IOException e) {
+          throw Util.sneakyThrow(e);
+        }
+        n[0]++;
+        return null;
+      }
+    });
+
+    data.writeInt(END);
+    data.flush();
+    return n[0];
+  }
+
+  /**
+   * Reads the entries from the stream and preloads them into the memo.
+   * Returns the number of entries read. Does not close the stream.
+   */
+  public static long read(Memo memo, IFn bytesToKey, IFn bytesToValue,
+      InputStream in) throws IOException {
+    DataInputStream data =
+        new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    checkHeader(data.readInt(), data.readInt());
+
+    long n = 0;
+    while (true) {
+      int argc = data.readInt();
+      if (argc == END) {
+        return n;
+      }
+      Object[] args = new Object[argc];
+      for (int i = 0; i < argc; i++) {
+        args[i] = bytesToKey.invoke(readBytes(data));
+      }
+      memo.preload(ArraySeq.create(args), bytesToValue.invoke(readBytes(data)));
+      n++;
+    }
+  }
+
+  /**
+   * Returns an iterator of Pair(args, value) reading the snapshot file through
+   * memory-mapped windows. The entries are decoded one at a time, so only the
+   * touched pages of the file are ever loaded. Close it when done.
+   */
+  public static Entries mapped(File file, IFn bytesToKey, IFn bytesToValue)
+      throws IOException {
+    return new Entries(file, bytesToKey, bytesToValue);
+  }
+
+  public static final class Entries implements Iterator<Pair<ISeq, Object>>,
+      Closeable {
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private final IFn bytesToKey;
+
+    private final IFn bytesToValue;
+
+    private long windowStart;
+
+    private MappedByteBuffer window;
+
+    private int nextArgc;
+
+    Entries(File file, IFn bytesToKey, IFn bytesToValue) throws IOException {
+      this.raf = new RandomAccessFile(file, "r");
+      this.channel = raf.getChannel();
+      this.fileSize = channel.size();
+      this.bytesToKey = bytesToKey;
+      this.bytesToValue = bytesToValue;
+      try {
+        remap(0, 8);
+        checkHeader(window.getInt(), window.getInt());
+        this.nextArgc = readInt();
+      }
+      catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextArgc != END;
+    }
+
+    @Override
+    public Pair<ISeq, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        Object[] args = new Object[nextArgc];
+        for (int i = 0; i < args.length; i++) {
+          args[i] = bytesToKey.invoke(readBytes());
+        }
+        Object value = bytesToValue.invoke(readBytes());
+        nextArgc = readInt();
+        return Pair.of((ISeq) ArraySeq.create(args), value);
+      }
+      catch (IOException e) {
+        throw Util.sneakyThrow(e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+      nextArgc = END;
+      window = null;
+      raf.close();
+    }
+
+    private int readInt() throws IOException {
+      ensure(4);
+      return window.getInt();
+    }
+
+    private byte[] readBytes() throws IOException {
+      int len = checkLength(readInt());
+      ensure(len);
+      byte[] b = new byte[len];
+      window.get(b);
+      return b;
+    }
+
+    private void ensure(int n) throws IOException {
+      if (window.remaining() >= n) {
+        return;
+      }
+      remap(windowStart + window.position(), n);
+    }
+
+    private void remap(long position, int n) throws IOException {
+      long size = Math.min(Math.max(WINDOW_SIZE, n), fileSize - position);
+      if (size < n) {
+        throw new EOFException("Unexpected end of the memo snapshot.");
+      }
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      windowStart = position;
+    }
+
+  }
+
+  private static void checkHeader(int magic, int version) {
+    if (magic != MAGIC) {
+      throw new StateError("Not a memo snapshot.");
+    }
+    if (version != VERSION) {
+      throw new StateError("Unsupported memo snapshot version " + version);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream data, byte[] b)
+      throws IOException {
+    data.writeInt(b.length);
+    data.write(b);
+  }
+
+  private static byte[] readBytes(DataInputStream data) throws IOException {
+    byte[] b = new byte[checkLength(data.readInt())];
+    data.readFully(b);
+    return b;
+  }
+
+  private static int checkLength(int len) {
+    if (len < 0) {
+      throw new StateError("Malformed memo snapshot, length " + len);
+    }
+    return len;
+  }
+
+  private static final int MAGIC = 0x434C4D53; // CLMS
+
+  private static final int VERSION = 1;
+
+  private static final int END = -1;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private static final long WINDOW_SIZE = 1L << 28;
+
+  private MemoSnapshot() {
+    ;
+  }
+
+}
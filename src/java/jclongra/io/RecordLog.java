@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import jclongra.StateError;
+import jclongra.core.BufferPool;
+import jclongra.core.ByteSink;
+import clojure.lang.IFn;
+import clojure.lang.RT;
+import clojure.lang.Util;
+
+/**
+ * An append-only log of records (byte ranges) kept in segment files of a
+ * directory. Every record is addressed by its offset, the position in the
+ * whole log (the segments are contiguous, every one named after the offset of
+ * its first record). The appends are buffered and written through a
+ * FileChannel; the reads go through the read-only memory mapped segments and
+ * return the records as views of the mappings, with no copying.
+ *
+ * <pre>
+ * segment := record*
+ * record  := len:int crc32:int byte{len}
+ * </pre>
+ *
+ * The crc32 covers the len too, so a zero-filled tail never reads as empty
+ * records. The mapping of the active segment grows by doubling, past the
+ * end of the file (extended with zeros, cut off on roll(), close() and the
+ * next open).
+ *
+ * The appends are fsync-ed every syncEvery records (when positive) and on
+ * sync(), roll() and close(). A torn record at the end of the last segment
+ * (after a crash) is cut off on open.
+ *
+ * <p>
+ * The methods are synchronized, the scans may run concurrently with appends.
+ */
+public final class RecordLog implements Closeable {
+
+  public static RecordLog open(File dir, long segmentSize, int syncEvery)
+      throws IOException {
+    if (segmentSize <= HEADER || segmentSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Illegal segmentSize " + segmentSize);
+    }
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Can't create the directory " + dir);
+    }
+    return new RecordLog(dir, segmentSize, syncEvery);
+  }
+
+  private RecordLog(File dir, long segmentSize, int syncEvery)
+      throws IOException {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+    this.syncEvery = syncEvery;
+
+    File[] files = dir.listFiles();
+    Arrays.sort(files);
+    for (File f : files) {
+      String name = f.getName();
+      if (name.matches("\\d{20}\\.log")) {
+        long base = Long.parseLong(name.substring(0, 20));
+        segments.put(base, new Segment(base, f, f.length()));
+      }
+    }
+
+    if (segments.isEmpty()) {
+      active = newSegment(0);
+    }
+    else {
+      active = segments.lastEntry().getValue();
+      recover(active);
+    }
+    channel = FileChannel.open(active.file.toPath(), StandardOpenOption.WRITE);
+    channel.position(active.size);
+    end = active.base + active.size;
+  }
+
+  /**
+   * Appends the remaining bytes of the buffer as a record. Returns its
+   * offset.
+   */
+  public synchronized long append(ByteBuffer record) throws IOException {
+    ensureOpen();
+    int len = record.remaining();
+    if (end > active.base && end - active.base + HEADER + len > segmentSize) {
+      roll();
+    }
+    int sum = checksum(crc, len, record.duplicate());
+    ByteBuffer buf = pending.ensure(HEADER + len);
+    buf.putInt(len).putInt(sum).put(record.duplicate());
+
+    long offset = end;
+    end += HEADER + len;
+    if (pending.position() >= FLUSH_SIZE) {
+      flush();
+    }
+    if (syncEvery > 0 && ++unsynced >= syncEvery) {
+      sync();
+    }
+    return offset;
+  }
+
+  public long append(byte[] b, int off, int len) throws IOException {
+    return append(ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * Appends the value written with the (writer sink value) of a bytes
+   * converter. Returns the offset of the record.
+   */
+  public synchronized long append(IFn writer, Object value)
+      throws IOException {
+    scratch.clear();
+    int len = RT.intCast(writer.invoke(scratch, value));
+    ByteBuffer record = scratch.buffer().duplicate();
+    record.flip();
+    record.limit(len);
+    return append(record);
+  }
+
+  /**
+   * Returns the record at the offset as a read-only view of the mapped
+   * segment.
+   */
+  public synchronized ByteBuffer read(long offset) throws IOException {
+    ensureOpen();
+    if (offset < 0 || offset >= end) {
+      throw new IndexOutOfBoundsException("Offset " + offset + ", end " + end);
+    }
+    if (offset >= end - pending.position()) {
+      flush();
+    }
+    Segment s = segments.floorEntry(offset).getValue();
+    long limit = s == active ? segmentSize : 0;
+    int pos = (int) (offset - s.base);
+    MappedByteBuffer map = s.mapped(pos + HEADER, limit);
+    int len = map.getInt(pos);
+    if (len < 0 || (long) pos + HEADER + len > s.size) {
+      throw new StateError("No record at the offset " + offset);
+    }
+    map = s.mapped(pos + HEADER + len, limit);
+    ByteBuffer result = map.duplicate();
+    result.limit(pos + HEADER + len);
+    result.position(pos + HEADER);
+    return result.slice();
+  }
+
+  /**
+   * Returns the iterator of the records from the offset on (a record offset
+   * or 0), every one being a view of the mapping. It goes on to the records
+   * appended during the iteration.
+   */
+  public Scan scan(long from) {
+    return new Scan(from);
+  }
+
+  public final class Scan implements Iterator<ByteBuffer> {
+
+    private long next;
+
+    private long offset = -1;
+
+    Scan(long from) {
+      this.next = from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      synchronized (RecordLog.this) {
+        return next < end;
+      }
+    }
+
+    @Override
+    public ByteBuffer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        ByteBuffer record = read(next);
+        offset = next;
+        next += HEADER + record.remaining();
+        return record;
+      }
+      catch (IOException e) {
+        throw Util.sneakyThrow(e);
+      }
+    }
+
+    /**
+     * Returns the offset of the record returned by the last next().
+     */
+    public long offset() {
+      return offset;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  /**
+   * Returns the offset of the next record to append.
+   */
+  public synchronized long end() {
+    return end;
+  }
+
+  /**
+   * Writes the buffered records to the segment file (without fsync).
+   */
+  public synchronized void flush() throws IOException {
+    ensureOpen();
+    ByteBuffer buf = pending.buffer();
+    buf.flip();
+    while (buf.hasRemaining()) {
+      active.size += channel.write(buf);
+    }
+    pending.clear();
+  }
+
+  /**
+   * Writes the buffered records and forces them to the disk.
+   */
+  public synchronized void sync() throws IOException {
+    flush();
+    channel.force(false);
+    unsynced = 0;
+  }
+
+  /**
+   * Syncs and closes the active segment, starting a new one (unless the
+   * active one is empty).
+   */
+  public synchronized void roll() throws IOException {
+    sync();
+    if (end == active.base) {
+      return;
+    }
+    channel.truncate(active.size);
+    channel.close();
+    active = newSegment(end);
+    channel = FileChannel.open(active.file.toPath(), StandardOpenOption.WRITE);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      sync();
+      channel.truncate(active.size);
+    }
+    finally {
+      closed = true;
+      channel.close();
+      pending.close();
+      scratch.close();
+      segments.clear();
+    }
+  }
+
+  public synchronized int segmentsCount() {
+    return segments.size();
+  }
+
+  private Segment newSegment(long base) throws IOException {
+    File f = new File(dir, String.format("%020d.log", base));
+    if (!f.createNewFile()) {
+      throw new StateError("The segment " + f + " exists.");
+    }
+    Segment s = new Segment(base, f, 0);
+    segments.put(base, s);
+    return s;
+  }
+
+  /**
+   * Cuts off the torn or corrupted records at the end of the segment.
+   */
+  private static void recover(Segment s) throws IOException {
+    long valid = 0;
+    if (s.size >= HEADER) {
+      MappedByteBuffer map = s.mapped(s.size, 0);
+      CRC32 c = new CRC32();
+      while (valid + HEADER <= s.size) {
+        int pos = (int) valid;
+        int len = map.getInt(pos);
+        if (len < 0 || valid + HEADER + len > s.size) {
+          break;
+        }
+        ByteBuffer record = map.duplicate();
+        record.limit(pos + HEADER + len);
+        record.position(pos + HEADER);
+        if (checksum(c, len, record) != map.getInt(pos + 4)) {
+          break;
+        }
+        valid += HEADER + len;
+      }
+    }
+    if (valid != s.size) {
+      try (FileChannel ch =
+          FileChannel.open(s.file.toPath(), StandardOpenOption.WRITE)) {
+        ch.truncate(valid);
+      }
+      s.size = valid;
+      s.map = null;
+    }
+  }
+
+  private static int checksum(CRC32 c, int len, ByteBuffer record) {
+    c.reset();
+    c.update(len >>> 24);
+    c.update(len >>> 16);
+    c.update(len >>> 8);
+    c.update(len);
+    c.update(record);
+    return (int) c.getValue();
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new StateError("The record log is closed.");
+    }
+  }
+
+  private static final class Segment {
+
+    final long base;
+
+    final File file;
+
+    long size;
+
+    MappedByteBuffer map;
+
+    Segment(long base, File file, long size) {
+      this.base = base;
+      this.file = file;
+      this.size = size;
+    }
+
+    /**
+     * Returns the mapping of (at least) n first bytes. When the current
+     * mapping is too short, maps the whole segment or, with limit > size,
+     * twice the current mapping (up to the limit), extending the file.
+     */
+    MappedByteBuffer mapped(long n, long limit) throws IOException {
+      if (n > size) {
+        throw new StateError("Beyond the end of the segment " + file);
+      }
+      if (map == null || map.capacity() < n) {
+        long length = size;
+        if (limit > size) {
+          long doubled = map == null ? MIN_MAPPING : 2L * map.capacity();
+          length = Math.min(Math.max(doubled, size),
+              Math.min(limit, Integer.MAX_VALUE));
+        }
+        try (FileChannel ch = length > size
+            ? FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)
+            : FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+          map = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+      }
+      return map;
+    }
+
+  }
+
+  private static final int HEADER = 8;
+
+  private static final int FLUSH_SIZE = 1 << 16;
+
+  private static final long MIN_MAPPING = 1 << 20;
+
+  private final File dir;
+
+  private final long segmentSize;
+
+  private final int syncEvery;
+
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+  private final ByteSink pending =
+      ByteSink.pooled(BufferPool.HEAP, FLUSH_SIZE << 1);
+
+  private final ByteSink scratch = ByteSink.pooled(BufferPool.HEAP, 256);
+
+  private final CRC32 crc = new CRC32();
+
+  private Segment active;
+
+  private FileChannel channel;
+
+  private long end;
+
+  private int unsynced;
+
+  private boolean closed;
+
+}
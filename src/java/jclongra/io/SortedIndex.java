@@ -0,0 +1,546 @@
+/*
+ * Copyright (c) Konrad Grzanek. All rights reserved.
+ * Created 2026-10-17
+ */
+package jclongra.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import jclongra.StateError;
+import jclongra.core.Bits;
+import jclongra.core.ByteSink;
+import jclongra.core.Bytes;
+import jclongra.core.Pair;
+import clojure.lang.IFn;
+import clojure.lang.RT;
+
+/**
+ * An immutable sorted map of byte keys to byte values in a memory mapped
+ * file (SSTable-like), built once from the entries in the ascending order of
+ * the keys (unsigned, lexicographic, @see Bytes#compare). The entries go in
+ * blocks of about 4 KB, every key stored as the length of the prefix shared
+ * with the previous key and the rest. Every 16th key is stored in full (a
+ * restart point), so a lookup does a binary search of the blocks, then of the
+ * restart points and finally scans at most 16 entries.
+ *
+ * <pre>
+ * file   := block* index footer
+ * block  := entry* restart:int{r} r:int
+ * entry  := shared:varint unshared:varint vlen:varint
+ *           byte{unshared} byte{vlen}
+ * index  := (klen:int lastKey offset:long size:int){blocks}
+ *           position:int{blocks}
+ * footer := indexOffset:long blocks:int entries:long maxKeyLength:int
+ *           MAGIC:int
+ * </pre>
+ *
+ * The values are returned as read-only views of the mapping, with no
+ * copying. The file must be smaller than 2 GB.
+ */
+public final class SortedIndex implements Closeable {
+
+  public static Builder builder(File file) throws IOException {
+    return new Builder(file);
+  }
+
+  public static SortedIndex open(File file) throws IOException {
+    try (FileChannel ch =
+        FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = ch.size();
+      if (size < FOOTER || size > Integer.MAX_VALUE) {
+        throw new StateError("Not a sorted index " + file);
+      }
+      return new SortedIndex(ch.map(FileChannel.MapMode.READ_ONLY, 0, size),
+          file);
+    }
+  }
+
+  private SortedIndex(MappedByteBuffer map, File file) {
+    int f = map.capacity() - FOOTER;
+    if (map.getInt(f + 24) != MAGIC) {
+      throw new StateError("Not a sorted index " + file);
+    }
+    this.map = map;
+    this.blocks = map.getInt(f + 8);
+    this.entries = map.getLong(f + 12);
+    this.maxKeyLength = map.getInt(f + 20);
+    this.positions = f - 4 * blocks;
+  }
+
+  public long size() {
+    return entries;
+  }
+
+  /**
+   * Returns the value of the key as a view of the mapping, null when absent.
+   */
+  public ByteBuffer get(byte[] key, int off, int len) {
+    int b = findBlock(key, off, len);
+    if (b == blocks) {
+      return null;
+    }
+    Cursor c = new Cursor(null, 0, 0);
+    c.seek(b, key, off, len);
+    if (c.compareKey(key, off, len) != 0) {
+      return null;
+    }
+    return c.value();
+  }
+
+  public ByteBuffer get(byte[] key) {
+    return get(key, 0, key.length);
+  }
+
+  public ByteBuffer get(Bytes key) {
+    return get(key.array(), key.offset(), key.length());
+  }
+
+  /**
+   * Returns the entries (Pair(key, value)) with the keys in [from, to), in
+   * the ascending order. A null from (to) means no lower (upper) bound.
+   */
+  public Iterator<Pair<Bytes, ByteBuffer>> scan(byte[] from, byte[] to) {
+    Cursor c = new Cursor(to, 0, to == null ? 0 : to.length);
+    if (from == null) {
+      c.start(0);
+    }
+    else {
+      int b = findBlock(from, 0, from.length);
+      if (b == blocks) {
+        c.done = true;
+      }
+      else {
+        c.seek(b, from, 0, from.length);
+        c.checkUpperBound();
+      }
+    }
+    return c;
+  }
+
+  @Override
+  public void close() {
+    // THE MAPPING IS RELEASED BY THE GC
+    map = null;
+  }
+
+  private final class Cursor implements Iterator<Pair<Bytes, ByteBuffer>> {
+
+    private final byte[] to;
+
+    private final int toOff;
+
+    private final int toLen;
+
+    private final ByteBuffer m = mapping();
+
+    private byte[] key = new byte[maxKeyLength];
+
+    private int keyLength;
+
+    private int valuePos;
+
+    private int valueLength;
+
+    private int block;
+
+    private int blockStart;
+
+    private int pos;
+
+    private int dataEnd;
+
+    private int restarts;
+
+    /**
+     * An entry has been decoded and not returned yet.
+     */
+    private boolean ready;
+
+    private boolean done;
+
+    Cursor(byte[] to, int toOff, int toLen) {
+      this.to = to;
+      this.toOff = toOff;
+      this.toLen = toLen;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!ready && !done) {
+        advance();
+      }
+      return ready;
+    }
+
+    @Override
+    public Pair<Bytes, ByteBuffer> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      return Pair.of(Bytes.valueOf(Arrays.copyOf(key, keyLength)), value());
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    ByteBuffer value() {
+      ByteBuffer v = m.duplicate();
+      v.limit(valuePos + valueLength);
+      v.position(valuePos);
+      return v.slice();
+    }
+
+    int compareKey(byte[] k, int off, int len) {
+      return Bytes.compare(key, 0, keyLength, k, off, len);
+    }
+
+    /**
+     * Positions at the first entry of the block b.
+     */
+    void start(int b) {
+      if (b >= blocks) {
+        done = true;
+        return;
+      }
+      block = b;
+      int entry = m.getInt(positions + 4 * b);
+      int klen = m.getInt(entry);
+      blockStart = (int) m.getLong(entry + 4 + klen);
+      pos = blockStart;
+      int end = blockStart + m.getInt(entry + 12 + klen);
+      restarts = m.getInt(end - 4);
+      dataEnd = end - 4 - 4 * restarts;
+      keyLength = 0;
+      ready = false;
+    }
+
+    /**
+     * Decodes the first entry of the block b with the key >= k (there's one
+     * as the last key of the block is >= k).
+     */
+    void seek(int b, byte[] k, int off, int len) {
+      start(b);
+      // THE LAST RESTART POINT WITH THE KEY <= k
+      int lo = 0;
+      int hi = restarts - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        int p = blockStart + m.getInt(dataEnd + 4 * mid);
+        if (compareRestartKey(p, k, off, len) <= 0) {
+          lo = mid;
+        }
+        else {
+          hi = mid - 1;
+        }
+      }
+      pos = blockStart + m.getInt(dataEnd + 4 * lo);
+      keyLength = 0;
+      do {
+        decode();
+      } while (compareKey(k, off, len) < 0);
+      ready = true;
+    }
+
+    void checkUpperBound() {
+      if (to != null && compareKey(to, toOff, toLen) >= 0) {
+        ready = false;
+        done = true;
+      }
+    }
+
+    private void advance() {
+      if (pos >= dataEnd) {
+        start(block + 1);
+        if (done) {
+          return;
+        }
+      }
+      decode();
+      ready = true;
+      checkUpperBound();
+    }
+
+    private void decode() {
+      int shared = varInt();
+      int unshared = varInt();
+      valueLength = varInt();
+      ByteBuffer d = m.duplicate();
+      d.position(pos);
+      d.get(key, shared, unshared);
+      keyLength = shared + unshared;
+      valuePos = pos + unshared;
+      pos = valuePos + valueLength;
+    }
+
+    private int compareRestartKey(int p, byte[] k, int off, int len) {
+      pos = p;
+      varInt(); // SHARED = 0
+      int klen = varInt();
+      varInt();
+      return compareMapped(m, pos, klen, k, off, len);
+    }
+
+    private int varInt() {
+      int v = 0;
+      for (int shift = 0;; shift += 7) {
+        byte x = m.get(pos++);
+        v |= (x & 0x7F) << shift;
+        if (x >= 0) {
+          return v;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Returns the index of the first block with the last key >= k, blocks when
+   * there's none.
+   */
+  private int findBlock(byte[] k, int off, int len) {
+    ByteBuffer m = mapping();
+    int lo = 0;
+    int hi = blocks;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int entry = m.getInt(positions + 4 * mid);
+      if (compareMapped(m, entry + 4, m.getInt(entry), k, off, len) < 0) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private ByteBuffer mapping() {
+    MappedByteBuffer m = map;
+    if (m == null) {
+      throw new StateError("The sorted index is closed.");
+    }
+    return m;
+  }
+
+  /**
+   * Compares len bytes of the buffer at pos with the key as unsigned,
+   * lexicographically, 8 bytes at a time.
+   */
+  private static int compareMapped(ByteBuffer m, int pos, int len, byte[] k,
+      int off, int klen) {
+    int n = Math.min(len, klen);
+    int i = 0;
+    for (; i + 8 <= n; i += 8) {
+      long x = m.getLong(pos + i);
+      long y = Bits.getLong(k, off + i);
+      if (x != y) {
+        return Long.compareUnsigned(x, y);
+      }
+    }
+    for (; i < n; i++) {
+      int x = m.get(pos + i) & 0xFF;
+      int y = k[off + i] & 0xFF;
+      if (x != y) {
+        return x - y;
+      }
+    }
+    return Integer.compare(len, klen);
+  }
+
+  /**
+   * Writes a sorted index file from the entries added in the ascending order
+   * of the keys. close() completes the file.
+   */
+  public static final class Builder implements Closeable {
+
+    Builder(File file) throws IOException {
+      this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+    }
+
+    public void add(byte[] k, int off, int len, ByteBuffer value)
+        throws IOException {
+      if (entries > 0
+          && Bytes.compare(k, off, len, lastKey, 0, lastKeyLength) <= 0) {
+        throw new IllegalArgumentException(
+            "The keys must be added in the strictly ascending order.");
+      }
+      int shared = 0;
+      if (counter % RESTART_INTERVAL == 0) {
+        int r = counter / RESTART_INTERVAL;
+        if (r == restarts.length) {
+          restarts = Arrays.copyOf(restarts, r << 1);
+        }
+        restarts[r] = block.position();
+      }
+      else {
+        int n = Math.min(len, lastKeyLength);
+        while (shared < n && k[off + shared] == lastKey[shared]) {
+          shared++;
+        }
+      }
+      int vlen = value.remaining();
+      int unshared = len - shared;
+      ByteBuffer b = block.ensure(15 + unshared + vlen);
+      Bits.putVarLong(b, shared);
+      Bits.putVarLong(b, unshared);
+      Bits.putVarLong(b, vlen);
+      b.put(k, off + shared, unshared).put(value.duplicate());
+
+      if (lastKey.length < len) {
+        lastKey = new byte[Math.max(len, lastKey.length << 1)];
+      }
+      System.arraycopy(k, off, lastKey, 0, len);
+      lastKeyLength = len;
+      maxKeyLength = Math.max(maxKeyLength, len);
+      counter++;
+      entries++;
+      if (block.position() >= BLOCK_SIZE) {
+        finishBlock();
+      }
+    }
+
+    public void add(byte[] k, ByteBuffer value) throws IOException {
+      add(k, 0, k.length, value);
+    }
+
+    /**
+     * Adds the value written with the (writer sink value) of a bytes
+     * converter.
+     */
+    public void add(byte[] k, IFn writer, Object value) throws IOException {
+      scratch.clear();
+      int len = RT.intCast(writer.invoke(scratch, value));
+      ByteBuffer v = scratch.buffer().duplicate();
+      v.flip();
+      v.limit(len);
+      add(k, 0, k.length, v);
+    }
+
+    public long entries() {
+      return entries;
+    }
+
+    /**
+     * Writes the last block, the index and the footer, closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        finishBlock();
+        long indexOffset = written;
+        int[] entryPositions = new int[blocks];
+        ByteBuffer idx = index.buffer();
+        idx.flip();
+        for (int b = 0, p = 0; b < blocks; b++) {
+          entryPositions[b] = (int) (indexOffset + p);
+          int klen = idx.getInt(p);
+          p += 16 + klen;
+        }
+        write(idx.array(), idx.arrayOffset(), idx.limit());
+        ByteBuffer tail = ByteBuffer.allocate(4 * blocks + FOOTER);
+        for (int p : entryPositions) {
+          tail.putInt(p);
+        }
+        tail.putLong(indexOffset).putInt(blocks).putLong(entries)
+            .putInt(maxKeyLength).putInt(MAGIC);
+        write(tail.array(), 0, tail.position());
+        if (written > Integer.MAX_VALUE) {
+          throw new StateError("The sorted index exceeds 2 GB.");
+        }
+      }
+      finally {
+        out.close();
+      }
+    }
+
+    private void finishBlock() throws IOException {
+      if (counter == 0) {
+        return;
+      }
+      int r = (counter + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+      ByteBuffer b = block.ensure(4 * r + 4);
+      for (int i = 0; i < r; i++) {
+        b.putInt(restarts[i]);
+      }
+      b.putInt(r);
+
+      int size = block.position();
+      index.ensure(16 + lastKeyLength).putInt(lastKeyLength)
+          .put(lastKey, 0, lastKeyLength).putLong(written).putInt(size);
+      blocks++;
+      write(b.array(), b.arrayOffset(), size);
+      block.clear();
+      counter = 0;
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      written += len;
+    }
+
+    private final OutputStream out;
+
+    private final ByteSink block = ByteSink.growable(BLOCK_SIZE << 1, false);
+
+    private final ByteSink index = ByteSink.growable(1 << 12, false);
+
+    private final ByteSink scratch = ByteSink.growable(256, false);
+
+    private int[] restarts = new int[BLOCK_SIZE / RESTART_INTERVAL];
+
+    private byte[] lastKey = new byte[64];
+
+    private int lastKeyLength;
+
+    private int maxKeyLength;
+
+    private int counter;
+
+    private int blocks;
+
+    private long entries;
+
+    private long written;
+
+    private boolean closed;
+
+  }
+
+  private static final int BLOCK_SIZE = 1 << 12;
+
+  private static final int RESTART_INTERVAL = 16;
+
+  private static final int FOOTER = 28;
+
+  private static final int MAGIC = 0x53494458; // SIDX
+
+  private volatile MappedByteBuffer map;
+
+  private final int blocks;
+
+  private final long entries;
+
+  private final int maxKeyLength;
+
+  private final int positions;
+
+}
@@ -0,0 +1,71 @@
+(ns clongra.compressed-bitmap-test
+  (:require [clojure.set  :as set]
+            [clojure.test :refer :all]
+            [clongra.core :refer :all])
+  (:import [jclongra.core CompressedBitmap]))
+
+(defn- unsigned-sorted
+  [ints]
+  (->> (set ints) (sort-by #(bit-and (long %) 0xFFFFFFFF)) vec))
+
+
+(defn- round-trip
+  ^CompressedBitmap [^CompressedBitmap b]
+  (from-bytes :compressed-bitmap (to-bytes :compressed-bitmap b)))
+
+
+(def ^:private SPARSE [0 1 7 65535 65536 100000 (int 0x7FFFFFFF) -1 -65536])
+
+(def ^:private DENSE (range 0 65536 3)) ;; > 4096 VALUES IN ONE CHUNK
+
+(def ^:private RUNS (concat (range 10 100000) (range 200000 200100)))
+
+
+(deftest round-trips
+  (testing "The empty bitmap"
+    (let [b (round-trip (compressed-bitmap))]
+      (is (.isEmpty b))
+      (is (= [] (vec (.toArray b))))))
+
+  (doseq [[title ints] [["Arrays"  SPARSE]
+                        ["Bitmaps" DENSE]
+                        ["Runs"    RUNS]]]
+    (testing title
+      (let [b (compressed-bitmap ints)
+            r (round-trip b)]
+        (is (= b r))
+        (is (= (unsigned-sorted ints) (vec (.toArray r))))
+        (is (= (count (distinct ints)) (.cardinality r)))
+        (is (every? #(.contains r (int %)) ints))
+        (is (not (.contains r (int 5))))))))
+
+
+(deftest bitsets
+  (let [bits (java.util.BitSet.)]
+    (doseq [i (concat DENSE (range 70000 70100) [1000000])]
+      (.set bits (int i)))
+    (let [b (compressed-bitmap bits)]
+      (is (= bits (.toBitSet b)))
+      (is (= bits (.toBitSet (round-trip b)))))))
+
+
+(deftest binary-operations
+  (let [xs (set (concat SPARSE (take 5000 DENSE)))
+        ys (set (concat (range 0 20000 2) [-1 100000]))
+        a  (compressed-bitmap xs)
+        b  (compressed-bitmap ys)]
+    (is (= (unsigned-sorted (set/intersection xs ys))
+           (vec (.toArray (round-trip (.and a b))))))
+    (is (= (unsigned-sorted (set/union xs ys))
+           (vec (.toArray (round-trip (.or a b))))))
+    (is (= (unsigned-sorted (set/difference xs ys))
+           (vec (.toArray (round-trip (.andNot a b))))))))
+
+
+(deftest removals
+  (let [b (compressed-bitmap RUNS)]
+    (doseq [i (range 10 100000 2)]
+      (.remove b (int i)))
+    (.runOptimize b)
+    (is (= (unsigned-sorted (concat (range 11 100000 2) (range 200000 200100)))
+           (vec (.toArray (round-trip b)))))))
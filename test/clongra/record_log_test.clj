@@ -0,0 +1,93 @@
+(ns clongra.record-log-test
+  (:require [clojure.test :refer :all]
+            [clongra.core :refer :all]))
+
+(defn- temp-dir
+  ^java.io.File []
+  (.toFile (java.nio.file.Files/createTempDirectory
+            "record-log" (make-array java.nio.file.attribute.FileAttribute 0))))
+
+
+(defn- delete-dir!
+  [^java.io.File dir]
+  (doseq [^java.io.File f (.listFiles dir)] (.delete f))
+  (.delete dir))
+
+
+(defn- segment-files
+  [^java.io.File dir]
+  (sort (filter #(.endsWith (.getName ^java.io.File %) ".log")
+                (.listFiles dir))))
+
+
+(def ^:private VALUES (map #(str "record-" % (apply str (repeat (mod % 7) "x")))
+                           (range 1000)))
+
+(def ^:private OPTIONS {:segment-size 4096})
+
+
+(defn- append-all!
+  [log values]
+  (mapv #(record-log-append! log :str %) values))
+
+
+(deftest appends-reads-and-scans
+  (let [dir (temp-dir)]
+    (try
+      (with-open [log (record-log dir OPTIONS)]
+        (let [offsets (append-all! log VALUES)]
+          (is (apply < offsets))
+          (is (< 1 (count (segment-files dir))))
+          (is (= VALUES (map #(record-log-read log :str %) offsets)))
+          (is (= (map vector offsets VALUES)
+                 (map (juxt pair-first pair-second)
+                      (record-log-scan log :str))))
+          (is (= (drop 500 VALUES)
+                 (map pair-second
+                      (record-log-scan log :str {:from (nth offsets 500)}))))))
+      (finally (delete-dir! dir)))))
+
+
+(deftest reopening
+  (let [dir (temp-dir)]
+    (try
+      (let [offsets (with-open [log (record-log dir OPTIONS)]
+                      (append-all! log VALUES))]
+        (with-open [log (record-log dir OPTIONS)]
+          (is (= VALUES (map pair-second (record-log-scan log :str))))
+          (is (= (last VALUES) (record-log-read log :str (last offsets))))
+          (let [offset (record-log-append! log :str "after-reopen")]
+            (is (< (last offsets) offset))
+            (is (= "after-reopen" (record-log-read log :str offset))))))
+      (finally (delete-dir! dir)))))
+
+
+(defn- append-bytes!
+  [^java.io.File f ^bytes bytes]
+  (with-open [out (java.io.FileOutputStream. f true)]
+    (.write out bytes)))
+
+
+(deftest torn-tail-cut-on-reopen
+  (doseq [[title tail] [["A partial record"
+                         (byte-array [0 0 0 100 1 2 3 4 5 6])]
+                        ["A record with a bad crc"
+                         (byte-array [0 0 0 2 1 2 3 4 65 66])]
+                        ["A zero-filled tail"
+                         (byte-array 64)]]]
+    (testing title
+      (let [dir (temp-dir)]
+        (try
+          (with-open [log (record-log dir OPTIONS)]
+            (append-all! log VALUES))
+          (let [^java.io.File f (last (segment-files dir))
+                length (.length f)]
+            (append-bytes! f tail)
+            (with-open [log (record-log dir OPTIONS)]
+              (is (= length (.length f)))
+              (is (= VALUES (map pair-second (record-log-scan log :str))))
+              (let [offset (record-log-append! log :str "after-the-cut")]
+                (is (= ["after-the-cut"]
+                       (map pair-second
+                            (record-log-scan log :str {:from offset})))))))
+          (finally (delete-dir! dir)))))))
@@ -0,0 +1,74 @@
+(ns clongra.sorted-index-test
+  (:require [clojure.test :refer :all]
+            [clongra.core :refer :all]))
+
+(defn- temp-file
+  ^java.io.File []
+  (doto (java.io.File/createTempFile "sorted-index" ".idx")
+    (.deleteOnExit)))
+
+
+(def ^:private LONGS {:key-type :ordered-key :value-type :str})
+
+(def ^:private STRINGS {:key-type :str :value-type :long})
+
+;; THE EVEN KEYS ONLY, OVER MANY BLOCKS AND RESTART POINTS (EVERY 16TH KEY)
+(def ^:private KEYS (range -5000 5000 2))
+
+
+(deftest lookups
+  (let [file (temp-file)]
+    (is (= (count KEYS)
+           (sorted-index-build! file (map #(vector % (str "value" %)) KEYS)
+                                LONGS)))
+    (with-open [idx (sorted-index file)]
+      (is (= (count KEYS) (.size idx)))
+
+      (testing "Every key, at and between the restart points"
+        (is (every? #(= (str "value" %) (sorted-index-get idx % LONGS)) KEYS)))
+
+      (testing "The absent keys"
+        (is (every? #(nil? (sorted-index-get idx % LONGS))
+                    (concat [-5002 5000 Long/MIN_VALUE Long/MAX_VALUE]
+                            (range -4999 5000 2))))))))
+
+
+(deftest scans
+  (let [file (temp-file)]
+    (sorted-index-build! file (map #(pair % (str "value" %)) KEYS) LONGS)
+    (with-open [idx (sorted-index file)]
+      (let [scan (fn [options]
+                   (map pair-first
+                        (sorted-index-scan idx (merge LONGS options))))]
+        (is (= KEYS (scan {})))
+        (is (= (range 34 102 2) (scan {:from 33 :to 101})))
+        (is (= (range 34 102 2) (scan {:from 34 :to 102})))
+        (is (= (range 4000 5000 2) (scan {:from 3999})))
+        (is (= (range -5000 -4000 2) (scan {:to -4000})))
+        (is (empty? (scan {:from 5000})))
+        (is (empty? (scan {:from 35 :to 36})))
+        (is (= ["value-32" "value-30"]
+               (map pair-second
+                    (take 2 (sorted-index-scan
+                             idx (merge LONGS {:from -32}))))))))))
+
+
+(deftest shared-prefixes
+  (let [file (temp-file)
+        ks   (map #(format "key-%06d" %) (range 3000))]
+    (sorted-index-build! file (map vector ks (range)) STRINGS)
+    (with-open [idx (sorted-index file)]
+      (is (every? true? (map #(= %2 (sorted-index-get idx %1 STRINGS))
+                             ks (range))))
+      (is (nil? (sorted-index-get idx "key-" STRINGS)))
+      (is (nil? (sorted-index-get idx "key-0000005" STRINGS)))
+      (is (= (map vector ks (range))
+             (map (juxt pair-first pair-second)
+                  (sorted-index-scan idx STRINGS)))))))
+
+
+(deftest unsorted-keys
+  (with-open [b (jclongra.io.SortedIndex/builder (temp-file))]
+    (.add b (to-bytes :str "b") (bytes-writer :long) 1)
+    (is (thrown? IllegalArgumentException
+                 (.add b (to-bytes :str "a") (bytes-writer :long) 2)))))